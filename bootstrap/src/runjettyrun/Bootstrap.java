@@ -13,117 +13,82 @@
  */
 package runjettyrun;
 
-import java.lang.management.ManagementFactory;
-import java.util.Collections;
-
-import javax.management.MBeanServer;
-
-import org.mortbay.jetty.Server;
-import org.mortbay.jetty.nio.SelectChannelConnector;
-import org.mortbay.jetty.security.SslSocketConnector;
-import org.mortbay.jetty.webapp.WebAppContext;
-import org.mortbay.management.MBeanContainer;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
 
 /**
- * Started up by the plugin's runner. Starts Jetty.
+ * Started up by the plugin's runner. Starts the server engine of the launch, the bundled Jetty 6 unless -Drjrengine
+ * names another one.
+ * <p>
+ * This class must not depend on Jetty: the jars of another engine are on the class path instead of the Jetty 6 ones.
  * 
  * @author hillenius, jsynge
  */
 public class Bootstrap {
 
+    /** The engine used when the launch doesn't name one. */
+    private static final String DEFAULT_ENGINE = "runjettyrun.Jetty6Engine";
+
     /**
-     * Main function, starts the jetty server.
+     * Main function, starts the server.
      * 
      * @param args
      */
     public static void main(String[] args) throws Exception {
 
-        String context = System.getProperty("rjrcontext");
-        String webAppDir = System.getProperty("rjrwebapp");
-        Integer port = Integer.getInteger("rjrport");
-        Integer sslport = Integer.getInteger("rjrsslport");
-        String webAppClassPath = System.getProperty("rjrclasspath");
-        String keystore = System.getProperty("rjrkeystore");
-        String password = System.getProperty("rjrpassword");
-        String keyPassword = System.getProperty("rjrkeypassword");
-
-        if (context == null) {
-            throw new IllegalStateException("you need to provide argument -Drjrcontext");
+        // a JVM started ahead of the launch gets its settings only now
+        Integer standbyPort = Integer.getInteger("rjrstandby");
+        if (standbyPort != null) {
+            Standby.park(standbyPort, System.getProperty("rjrstandbytoken"));
         }
-        if (webAppDir == null) {
-            throw new IllegalStateException("you need to provide argument -Drjrwebapp");
-        }
-        if (port == null && sslport == null) {
-            throw new IllegalStateException("you need to provide argument -Drjrport and/or -Drjrsslport");
-        }
-
-        Server server = new Server();
 
-        if (port != null) {
-            SelectChannelConnector connector = new SelectChannelConnector();
-            connector.setPort(port);
+        long mainTime = System.currentTimeMillis();
 
-            if (sslport != null) {
-                connector.setConfidentialPort(sslport);
-            }
-
-            server.addConnector(connector);
+        String descriptor = System.getProperty("rjrdescriptor");
+        if (descriptor != null) {
+            loadDescriptor(new File(descriptor));
         }
 
-        if (sslport != null) {
-            if (keystore == null) {
-                throw new IllegalStateException("you need to provide argument -Drjrkeystore with -Drjrsslport");
-            }
-            if (password == null) {
-                throw new IllegalStateException("you need to provide argument -Drjrpassword with -Drjrsslport");
-            }
-            if (keyPassword == null) {
-                throw new IllegalStateException("you need to provide argument -Drjrkeypassword with -Drjrsslport");
-            }
-
-            SslSocketConnector sslConnector = new SslSocketConnector();
-            sslConnector.setKeystore(keystore);
-            sslConnector.setPassword(password);
-            sslConnector.setKeyPassword(keyPassword);
-
-            sslConnector.setMaxIdleTime(30000);
-            sslConnector.setPort(sslport);
-
-            server.addConnector(sslConnector);
+        StartupTimeline timeline = null;
+        if (Boolean.getBoolean("rjrtimeline")) {
+            String timelineFile = System.getProperty("rjrtimelinefile");
+            timeline = new StartupTimeline(System.getProperty("rjrlaunchtimeline"), timelineFile != null ? new File(
+                    timelineFile) : null);
+            timeline.mark("bootstrap main entered", mainTime);
         }
 
-        WebAppContext web = new WebAppContext();
-        web.setContextPath(context);
-        web.setWar(webAppDir);
-
-        // Fix issue 7, File locking on windows/Disable Jetty's locking of static files
-        // http://code.google.com/p/run-jetty-run/issues/detail?id=7
-        // by disabling the use of the file mapped buffers. The default Jetty behavior is
-        // intended to provide a performance boost, but run-jetty-run is focused on
-        // development (especially debugging) of web apps, not high-performance production
-        // serving of static content. Therefore, I'm not worried about the performance
-        // degradation of this change. My only concern is that there might be a need to
-        // test this feature that I'm disabling.
-        web.setInitParams(Collections.singletonMap("org.mortbay.jetty.servlet.Default.useFileMappedBuffer", "false"));
-
-        if (webAppClassPath != null) {
-            ProjectClassLoader loader = new ProjectClassLoader(web, webAppClassPath);
-            web.setClassLoader(loader);
+        String engine = System.getProperty("rjrengine", DEFAULT_ENGINE);
+        ServerEngine serverEngine;
+        try {
+            serverEngine = (ServerEngine) Class.forName(engine).newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("the server engine " + engine + " is not on the class path (-Drjrengine)", e);
         }
+        serverEngine.run(timeline);
+    }
 
-        server.addHandler(web);
-
-        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
-        MBeanContainer mBeanContainer = new MBeanContainer(mBeanServer);
-        server.getContainer().addEventListener(mBeanContainer);
-        mBeanContainer.start();
-
+    /**
+     * Reads the settings written by the plug-in into a launch descriptor, instead of passing them on the command line.
+     * Properties given on the command line take precedence.
+     */
+    private static void loadDescriptor(File file) throws IOException {
+        Properties descriptor = new Properties();
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
         try {
-            server.start();
-            server.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(100);
+            descriptor.load(in);
+        } finally {
+            in.close();
+        }
+        for (Map.Entry<Object, Object> entry : descriptor.entrySet()) {
+            String name = (String) entry.getKey();
+            if (System.getProperty(name) == null) {
+                System.setProperty(name, (String) entry.getValue());
+            }
         }
         return;
     }
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import org.mortbay.thread.QueuedThreadPool;
+
+/**
+ * A {@link QueuedThreadPool} whose job queue can be bounded. Jetty 6's pool queues without limit once all threads are
+ * busy; this pool refuses the job instead once the pool has grown to its maximum and the queue holds the limit. The
+ * pool only starts a new thread for a job it has queued, so the queue is never bounded while it can still grow.
+ * <p>
+ * A refused job is not a dropped connection: the blocking (SSL socket) connector closes the connection, but the
+ * select channel connector logs "dispatch failed!" and selects the connection again, so it is retried as soon as the
+ * selector comes back to it. Under sustained overload this busy retries and fills the log; it shows that the server
+ * is saturated, not how clients are turned away.
+ * <p>
+ * The limit is checked before the job is queued, without holding the pool's lock, so concurrent dispatches may
+ * exceed it by a few jobs.
+ */
+public class BoundedQueuedThreadPool extends QueuedThreadPool {
+
+    private static final long serialVersionUID = 1L;
+
+    private int queueLimit = -1;
+
+    public BoundedQueuedThreadPool() {
+        super();
+    }
+
+    /**
+     * @return the maximum number of jobs waiting for a thread, or -1 if the queue is unbounded.
+     */
+    public int getQueueLimit() {
+        return this.queueLimit;
+    }
+
+    /**
+     * @param queueLimit the maximum number of jobs waiting for a thread, or -1 for no limit.
+     */
+    public void setQueueLimit(int queueLimit) {
+        this.queueLimit = queueLimit;
+    }
+
+    @Override
+    public boolean dispatch(Runnable job) {
+        if (this.queueLimit >= 0 && this.getIdleThreads() == 0 && this.getThreads() >= this.getMaxThreads()
+                && this.getQueueSize() >= this.queueLimit) {
+            return false;
+        }
+        return super.dispatch(job);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports changes to directory trees and single files, using the file system's notifications rather than polling:
+ * the thread blocks while nothing changes. Events are collected until none has arrived for a quiet period, so that a
+ * build writing many class files is reported as one batch.
+ */
+public class ChangeDetector extends Thread {
+
+    /**
+     * Receives the batches of changes.
+     */
+    public interface Listener {
+
+        /**
+         * @param changed the created, modified and deleted files and directories, in the order first seen
+         */
+        void filesChanged(Set<File> changed) throws Exception;
+    }
+
+    private final WatchService watcher;
+
+    private final Listener listener;
+
+    /** The milliseconds without events after which a batch is reported. */
+    private final long quietPeriod;
+
+    /** The watched directories per key. */
+    private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+
+    /** The directories whose whole content is watched. */
+    private final Set<Path> trees = new HashSet<Path>();
+
+    /** The single files watched (e.g. jars), through their parent directory. */
+    private final Set<Path> files = new HashSet<Path>();
+
+    /**
+     * @param roots the directories (watched recursively) and files to watch; those that don't exist are ignored
+     * @param quietPeriod the milliseconds without events after which a batch is reported
+     * @param listener receives the batches
+     * @throws IOException if the watch service can't be created
+     */
+    public ChangeDetector(List<File> roots, long quietPeriod, Listener listener) throws IOException {
+        super("ChangeDetector");
+        this.setDaemon(true);
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.quietPeriod = quietPeriod;
+        this.listener = listener;
+
+        for (File root : roots) {
+            Path path = root.toPath().toAbsolutePath();
+            if (Files.isDirectory(path)) {
+                this.registerTree(path);
+            } else if (Files.isRegularFile(path) && path.getParent() != null) {
+                this.files.add(path);
+                this.register(path.getParent());
+            }
+        }
+    }
+
+    /**
+     * @return the number of directories watched
+     */
+    public int getDirectoryCount() {
+        return this.keys.size();
+    }
+
+    /**
+     * Stops watching; the thread ends.
+     */
+    public void close() {
+        try {
+            this.watcher.close();
+        } catch (IOException e) {
+            // nothing to release then
+        }
+        return;
+    }
+
+    @Override
+    public void run() {
+        Set<File> batch = new LinkedHashSet<File>();
+        try {
+            while (true) {
+                WatchKey key;
+                if (batch.isEmpty()) {
+                    key = this.watcher.take();
+                } else {
+                    key = this.watcher.poll(this.quietPeriod, TimeUnit.MILLISECONDS);
+                    if (key == null) {
+                        this.report(batch);
+                        batch = new LinkedHashSet<File>();
+                        continue;
+                    }
+                }
+                this.collect(key, batch);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+        return;
+    }
+
+    /**
+     * Adds the events of a key to the batch, and starts watching the directories created in a watched tree.
+     */
+    private void collect(WatchKey key, Set<File> batch) {
+        Path dir = this.keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events were lost; report the directory itself
+                if (dir != null) {
+                    batch.add(dir.toFile());
+                }
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (this.trees.contains(dir)) {
+                batch.add(child.toFile());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        this.registerTree(child);
+                    } catch (IOException e) {
+                        System.err.println("ChangeDetector: can't watch " + child + ": " + e);
+                    }
+                }
+            } else if (this.files.contains(child)) {
+                batch.add(child.toFile());
+            }
+        }
+        if (!key.reset()) {
+            // the directory is gone
+            this.keys.remove(key);
+            this.trees.remove(dir);
+        }
+        return;
+    }
+
+    private void report(Set<File> batch) {
+        try {
+            this.listener.filesChanged(batch);
+        } catch (Exception e) {
+            System.err.println("ChangeDetector: listener failed");
+            e.printStackTrace();
+        }
+        return;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                ChangeDetector.this.register(dir);
+                ChangeDetector.this.trees.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return;
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register(this.watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        this.keys.put(key, dir);
+        return;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+/**
+ * Run by the plug-in with -XX:ArchiveClassesAtExit and the Jetty class path, to create the class data sharing archive
+ * that the launches then map instead of parsing and verifying the classes of the Jetty jars again. It only loads the
+ * classes of the jars on the class path, and exits.
+ */
+public class ClassDataSharing {
+
+    private ClassDataSharing() {
+    }
+
+    public static void main(String[] args) {
+        long startTime = System.currentTimeMillis();
+        int classes = Standby.preload(false);
+        System.err.println("ClassDataSharing: " + classes + " classes loaded in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+        return;
+    }
+}
@@ -0,0 +1,550 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSigner;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * An index of the packages in the jars of a class path, so that finding a class or resource only looks at the jars
+ * that contain its package, rather than asking every jar in turn as {@link java.net.URLClassLoader} does. Jars are
+ * indexed once, when they are added. Directories are not indexed, since their content changes while the web
+ * application runs (e.g. when Eclipse builds the project); they are always searched.
+ * <p>
+ * Each jar is opened once: the URLs of its resources read from the same {@link JarFile}, rather than having the JVM
+ * open the jar again for them.
+ */
+public class ClassPathIndex {
+
+    /** All entries, in class path order. */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /** The directory entries, in class path order. */
+    private final List<Entry> directories = new ArrayList<Entry>();
+
+    /** The directories, in class path order. */
+    private final List<File> directoryFiles = new ArrayList<File>();
+
+    /** The position of the next entry added. */
+    private int nextPosition;
+
+    /** The jar entries per package (e.g. "org/mortbay/jetty"), in class path order. */
+    private final Map<String, List<Entry>> packages = new HashMap<String, List<Entry>>();
+
+    public ClassPathIndex() {
+    }
+
+    /**
+     * Adds a jar or directory to the end of the class path. Paths that don't exist are ignored.
+     * 
+     * @param file the jar or directory
+     * @throws IOException if the jar can't be read
+     */
+    public synchronized void add(File file) throws IOException {
+        Entry entry = open(this.nextPosition++, file);
+        if (entry != null) {
+            this.register(entry);
+        }
+        return;
+    }
+
+    /**
+     * Adds jars and directories to the end of the class path, opening and indexing the jars concurrently. Reading the
+     * central directories of a few hundred jars one after the other dominates a cold start.
+     * 
+     * @param files the jars and directories, in class path order
+     * @param threads the number of jars to open concurrently
+     * @throws IOException if a jar can't be read; the jars that could be read are still added
+     */
+    public void addAll(List<File> files, int threads) throws IOException {
+        if (threads <= 1 || files.size() < 2) {
+            for (File file : files) {
+                this.add(file);
+            }
+            return;
+        }
+
+        final int base;
+        synchronized (this) {
+            base = this.nextPosition;
+            this.nextPosition += files.size();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<Entry>> futures = new ArrayList<Future<Entry>>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                final File file = files.get(i);
+                final int position = base + i;
+                futures.add(executor.submit(new Callable<Entry>() {
+
+                    public Entry call() throws IOException {
+                        return open(position, file);
+                    }
+                }));
+            }
+
+            // register in class path order, after all jars were opened
+            IOException failure = null;
+            for (Future<Entry> future : futures) {
+                try {
+                    Entry entry = future.get();
+                    if (entry != null) {
+                        this.register(entry);
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()
+                                .toString());
+                    }
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("interrupted while indexing the class path");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return;
+    }
+
+    private synchronized void register(Entry entry) {
+        if (entry instanceof JarEntry) {
+            for (String packageName : ((JarEntry) entry).packageNames) {
+                List<Entry> list = this.packages.get(packageName);
+                if (list == null) {
+                    list = new ArrayList<Entry>(1);
+                    this.packages.put(packageName, list);
+                }
+                list.add(entry);
+            }
+        } else {
+            this.directories.add(entry);
+            this.directoryFiles.add(((DirectoryEntry) entry).dir);
+        }
+        this.entries.add(entry);
+        return;
+    }
+
+    /**
+     * Opens a jar and reads its packages, or wraps a directory.
+     * 
+     * @return the entry, or null if the file doesn't exist
+     */
+    private static Entry open(int position, File file) throws IOException {
+        if (file.isDirectory()) {
+            return new DirectoryEntry(position, file);
+        } else if (file.isFile()) {
+            return new JarEntry(position, file);
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of jars and directories in the index
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the directories of the class path, in class path order
+     */
+    public synchronized List<File> getDirectories() {
+        return new ArrayList<File>(this.directoryFiles);
+    }
+
+    /**
+     * @return the number of packages found in the jars
+     */
+    public synchronized int getPackageCount() {
+        return this.packages.size();
+    }
+
+    /**
+     * Finds the first entry containing a resource.
+     * 
+     * @param name the resource name, e.g. "org/mortbay/jetty/Server.class"
+     * @return the entry, or null if no entry contains the resource
+     */
+    public Entry find(String name) {
+        for (Entry entry : this.candidates(name)) {
+            if (entry.contains(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds all entries containing a resource.
+     * 
+     * @param name the resource name
+     * @return the entries, in class path order
+     */
+    public List<Entry> findAll(String name) {
+        List<Entry> found = new ArrayList<Entry>();
+        for (Entry entry : this.candidates(name)) {
+            if (entry.contains(name)) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Closes the jars of the index.
+     */
+    public synchronized void close() {
+        for (Entry entry : this.entries) {
+            entry.close();
+        }
+        return;
+    }
+
+    /**
+     * Merges the jars holding the package of the resource with the directories, keeping class path order.
+     */
+    private synchronized List<Entry> candidates(String name) {
+        List<Entry> jars = this.packages.get(packageOf(name));
+        if (jars == null) {
+            return new ArrayList<Entry>(this.directories);
+        }
+        if (this.directories.isEmpty()) {
+            return new ArrayList<Entry>(jars);
+        }
+        List<Entry> merged = new ArrayList<Entry>(jars.size() + this.directories.size());
+        int i = 0;
+        int j = 0;
+        while (i < jars.size() || j < this.directories.size()) {
+            if (j == this.directories.size()
+                    || (i < jars.size() && jars.get(i).position < this.directories.get(j).position)) {
+                merged.add(jars.get(i++));
+            } else {
+                merged.add(this.directories.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Encodes a resource name for use in a URL, as {@link java.net.URLClassLoader} does: the characters that are not
+     * allowed in a URL path (spaces, '#', '%', non-ASCII characters...) are escaped.
+     */
+    static String encodePath(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || "/-_.!~*'():@&=+$,;".indexOf(b) >= 0) {
+                sb.append((char) b);
+            } else {
+                sb.append('%').append(Character.toUpperCase(Character.forDigit(b >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the directory part of a resource name, without trailing slash, or "" for the root
+     */
+    static String packageOf(String name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = name.lastIndexOf('/', end - 1);
+        return slash < 0 ? "" : name.substring(0, slash);
+    }
+
+    /**
+     * A jar or directory of the class path.
+     */
+    public static abstract class Entry {
+
+        final int position;
+
+        final URL url;
+
+        Entry(int position, File file) throws MalformedURLException {
+            this.position = position;
+            this.url = file.toURI().toURL();
+        }
+
+        /**
+         * @return the URL of the jar or directory, as used for the code source of its classes
+         */
+        public URL getURL() {
+            return this.url;
+        }
+
+        /**
+         * @return the manifest of the jar, or null
+         */
+        public Manifest getManifest() throws IOException {
+            return null;
+        }
+
+        public abstract boolean contains(String name);
+
+        public abstract URL getResource(String name) throws MalformedURLException;
+
+        public abstract byte[] getBytes(String name) throws IOException;
+
+        /**
+         * Reads a class file along with the signers of its jar entry, which are only known once it was read.
+         * 
+         * @return the class file, or null if the entry doesn't contain it
+         */
+        public ClassFile getClassFile(String name) throws IOException {
+            byte[] bytes = this.getBytes(name);
+            return bytes != null ? new ClassFile(bytes, null) : null;
+        }
+
+        void close() {
+        }
+
+        static byte[] readFully(InputStream in) throws IOException {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * The bytes of a class, and the signers of the jar entry holding it.
+     */
+    public static class ClassFile {
+
+        final byte[] bytes;
+
+        final CodeSigner[] codeSigners;
+
+        ClassFile(byte[] bytes, CodeSigner[] codeSigners) {
+            this.bytes = bytes;
+            this.codeSigners = codeSigners;
+        }
+
+        public byte[] getBytes() {
+            return this.bytes;
+        }
+
+        /**
+         * @return the signers, or null if the class is not signed
+         */
+        public CodeSigner[] getCodeSigners() {
+            return this.codeSigners;
+        }
+    }
+
+    private static class DirectoryEntry extends Entry {
+
+        final File dir;
+
+        DirectoryEntry(int position, File dir) throws MalformedURLException {
+            super(position, dir);
+            this.dir = dir;
+        }
+
+        @Override
+        public boolean contains(String name) {
+            return new File(this.dir, name).exists();
+        }
+
+        @Override
+        public URL getResource(String name) throws MalformedURLException {
+            return new File(this.dir, name).toURI().toURL();
+        }
+
+        @Override
+        public byte[] getBytes(String name) throws IOException {
+            return readFully(new FileInputStream(new File(this.dir, name)));
+        }
+    }
+
+    private static class JarEntry extends Entry {
+
+        private final JarFile jar;
+
+        private final String base;
+
+        private final Set<String> packageNames = new LinkedHashSet<String>();
+
+        /** Opens the URLs of the resources on {@link #jar}. */
+        private final URLStreamHandler handler = new URLStreamHandler() {
+
+            @Override
+            protected URLConnection openConnection(URL url) throws IOException {
+                return new SharedJarURLConnection(url);
+            }
+        };
+
+        JarEntry(int position, File file) throws IOException {
+            super(position, file);
+            this.jar = new JarFile(file);
+            this.base = "jar:" + this.url + "!/";
+            Enumeration<java.util.jar.JarEntry> jarEntries = this.jar.entries();
+            while (jarEntries.hasMoreElements()) {
+                this.packageNames.add(packageOf(jarEntries.nextElement().getName()));
+            }
+        }
+
+        @Override
+        public Manifest getManifest() throws IOException {
+            return this.jar.getManifest();
+        }
+
+        @Override
+        public boolean contains(String name) {
+            return this.jar.getEntry(name) != null;
+        }
+
+        @Override
+        public URL getResource(String name) throws MalformedURLException {
+            return new URL(null, this.base + encodePath(name), this.handler);
+        }
+
+        @Override
+        public byte[] getBytes(String name) throws IOException {
+            ZipEntry zipEntry = this.jar.getEntry(name);
+            if (zipEntry == null) {
+                return null;
+            }
+            return readFully(this.jar.getInputStream(zipEntry));
+        }
+
+        @Override
+        public ClassFile getClassFile(String name) throws IOException {
+            java.util.jar.JarEntry jarEntry = this.jar.getJarEntry(name);
+            if (jarEntry == null) {
+                return null;
+            }
+            // the signers are verified while the entry is read
+            byte[] bytes = readFully(this.jar.getInputStream(jarEntry));
+            return new ClassFile(bytes, jarEntry.getCodeSigners());
+        }
+
+        @Override
+        void close() {
+            try {
+                this.jar.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        /**
+         * A connection to a resource of the jar, reading from the jar already open. A caller that turned caching off
+         * closes the jar when done, so it gets a jar of its own.
+         */
+        private class SharedJarURLConnection extends JarURLConnection {
+
+            private java.util.jar.JarEntry jarEntry;
+
+            SharedJarURLConnection(URL url) throws MalformedURLException {
+                super(url);
+            }
+
+            @Override
+            public void connect() throws IOException {
+                if (this.connected) {
+                    return;
+                }
+                String name = this.getEntryName();
+                if (name != null) {
+                    this.jarEntry = JarEntry.this.jar.getJarEntry(name);
+                    if (this.jarEntry == null) {
+                        throw new FileNotFoundException("JAR entry " + name + " not found in " + JarEntry.this.jar.getName());
+                    }
+                }
+                this.connected = true;
+                return;
+            }
+
+            @Override
+            public JarFile getJarFile() throws IOException {
+                this.connect();
+                return this.getUseCaches() ? JarEntry.this.jar : new JarFile(JarEntry.this.jar.getName());
+            }
+
+            @Override
+            public java.util.jar.JarEntry getJarEntry() throws IOException {
+                this.connect();
+                return this.jarEntry;
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                this.connect();
+                if (this.jarEntry == null) {
+                    throw new IOException("no entry name specified");
+                }
+                return JarEntry.this.jar.getInputStream(this.jarEntry);
+            }
+
+            @Override
+            public int getContentLength() {
+                long length = this.getContentLengthLong();
+                return length > Integer.MAX_VALUE ? -1 : (int) length;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                try {
+                    this.connect();
+                } catch (IOException e) {
+                    return -1;
+                }
+                return this.jarEntry != null ? this.jarEntry.getSize() : -1;
+            }
+        }
+    }
+}
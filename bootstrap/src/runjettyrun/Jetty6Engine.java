@@ -0,0 +1,558 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+
+import javax.management.MBeanServer;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mortbay.jetty.AbstractConnector;
+import org.mortbay.jetty.Connector;
+import org.mortbay.jetty.Handler;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.handler.ContextHandlerCollection;
+import org.mortbay.jetty.handler.HandlerWrapper;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.jetty.security.SslSelectChannelConnector;
+import org.mortbay.jetty.security.SslSocketConnector;
+import org.mortbay.jetty.servlet.FilterHolder;
+import org.mortbay.jetty.webapp.WebAppContext;
+import org.mortbay.management.MBeanContainer;
+import org.mortbay.servlet.GzipFilter;
+
+/**
+ * The default engine: the bundled Jetty 6.
+ * 
+ * @author hillenius, jsynge
+ */
+public class Jetty6Engine implements ServerEngine {
+
+    public Jetty6Engine() {
+    }
+
+    public void run(StartupTimeline timeline) throws Exception {
+
+        String context = System.getProperty("rjrcontext");
+        String webAppDir = System.getProperty("rjrwebapp");
+        Integer port = Integer.getInteger("rjrport");
+        Integer sslport = Integer.getInteger("rjrsslport");
+        String webAppClassPath = System.getProperty("rjrclasspath");
+        String workDir = System.getProperty("rjrworkdir");
+        int webAppCount = Integer.getInteger("rjrwebappcount", 0);
+        String keystore = System.getProperty("rjrkeystore");
+        String password = System.getProperty("rjrpassword");
+        String keyPassword = System.getProperty("rjrkeypassword");
+        boolean sslNio = Boolean.getBoolean("rjrsslnio");
+        boolean precompileJsps = Boolean.getBoolean("rjrprecompilejsps");
+        Integer precompileThreads = Integer.getInteger("rjrprecompilethreads");
+        Integer minThreads = Integer.getInteger("rjrminthreads");
+        Integer maxThreads = Integer.getInteger("rjrmaxthreads");
+        Integer threadIdleTime = Integer.getInteger("rjrthreadidletime");
+        Integer queueLimit = Integer.getInteger("rjrqueuelimit");
+        boolean reload = Boolean.getBoolean("rjrreload");
+        Integer reloadQuietPeriod = Integer.getInteger("rjrreloadquietperiod", 500);
+
+        if (context == null) {
+            throw new IllegalStateException("you need to provide argument -Drjrcontext");
+        }
+        if (webAppDir == null) {
+            throw new IllegalStateException("you need to provide argument -Drjrwebapp");
+        }
+        List<WebApp> webApps = new ArrayList<WebApp>();
+        webApps.add(new WebApp(context, webAppDir, webAppClassPath, workDir));
+        for (int i = 1; i <= webAppCount; i++) {
+            String extraContext = System.getProperty("rjrcontext." + i);
+            String extraWebAppDir = System.getProperty("rjrwebapp." + i);
+            if (extraContext == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrcontext." + i + " with -Drjrwebappcount");
+            }
+            if (extraWebAppDir == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrwebapp." + i + " with -Drjrwebappcount");
+            }
+            // each web application needs a work directory of its own
+            String extraWorkDir = workDir != null ? new File(workDir, "webapp-" + i).getPath() : null;
+            webApps.add(new WebApp(extraContext, extraWebAppDir, System.getProperty("rjrclasspath." + i), extraWorkDir));
+        }
+
+        if (Boolean.getBoolean("rjrsharedlibs")) {
+            webApps = shareLibraries(webApps);
+        }
+
+        if (port == null && sslport == null) {
+            throw new IllegalStateException("you need to provide argument -Drjrport and/or -Drjrsslport");
+        }
+
+        if (minThreads != null && maxThreads != null && minThreads > maxThreads) {
+            throw new IllegalStateException("-Drjrminthreads must not be greater than -Drjrmaxthreads");
+        }
+
+        Server server = new Server();
+
+        if (minThreads != null || maxThreads != null || threadIdleTime != null || queueLimit != null) {
+            BoundedQueuedThreadPool threadPool = new BoundedQueuedThreadPool();
+            if (maxThreads != null) {
+                threadPool.setMaxThreads(maxThreads);
+            }
+            if (minThreads != null) {
+                threadPool.setMinThreads(minThreads);
+            }
+            if (threadIdleTime != null) {
+                threadPool.setMaxIdleTimeMs(threadIdleTime);
+            }
+            if (queueLimit != null) {
+                threadPool.setQueueLimit(queueLimit);
+            }
+            server.setThreadPool(threadPool);
+        }
+
+        if (port != null) {
+            SelectChannelConnector connector = new SelectChannelConnector();
+            connector.setPort(port);
+            configureConnector(connector, "rjr");
+
+            Integer lowResourcesConnections = Integer.getInteger("rjrlowresourcesconnections");
+            if (lowResourcesConnections != null) {
+                connector.setLowResourcesConnections(lowResourcesConnections);
+            }
+
+            if (sslport != null) {
+                connector.setConfidentialPort(sslport);
+            }
+
+            server.addConnector(connector);
+        }
+
+        if (sslport != null) {
+            if (keystore == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrkeystore with -Drjrsslport");
+            }
+            if (password == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrpassword with -Drjrsslport");
+            }
+            if (keyPassword == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrkeypassword with -Drjrsslport");
+            }
+
+            AbstractConnector sslConnector;
+            if (sslNio) {
+                sslConnector = newSslSelectChannelConnector(keystore, password, keyPassword);
+            } else {
+                SslSocketConnector socketConnector = new SslSocketConnector();
+                socketConnector.setKeystore(keystore);
+                socketConnector.setPassword(password);
+                socketConnector.setKeyPassword(keyPassword);
+                sslConnector = socketConnector;
+            }
+
+            sslConnector.setMaxIdleTime(30000);
+            sslConnector.setPort(sslport);
+            configureConnector(sslConnector, "rjrssl");
+
+            server.addConnector(sslConnector);
+        }
+
+        if (Boolean.getBoolean("rjrconnectorstats")) {
+            Connector[] connectors = server.getConnectors();
+            for (int i = 0; i < connectors.length; i++) {
+                ((AbstractConnector) connectors[i]).setStatsOn(true);
+            }
+        }
+
+        if (timeline != null) {
+            timeline.mark("connectors configured");
+        }
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        final ContextHandlerCollection contexts = new ParallelContextHandlerCollection();
+        Handler handler = contexts;
+        if (Boolean.getBoolean("rjrrequeststats")) {
+            RequestStatisticsHandler statisticsHandler = new RequestStatisticsHandler(mBeanServer);
+            statisticsHandler.setHandler(handler);
+            handler = statisticsHandler;
+        }
+        if (timeline != null) {
+            FirstRequestHandler firstRequestHandler = new FirstRequestHandler(timeline);
+            firstRequestHandler.setHandler(handler);
+            handler = firstRequestHandler;
+        }
+        server.setHandler(handler);
+
+        final WebAppContext[] webs = new WebAppContext[webApps.size()];
+        for (int i = 0; i < webs.length; i++) {
+            webs[i] = webApps.get(i).call();
+            contexts.addHandler(webs[i]);
+        }
+        if (timeline != null) {
+            timeline.mark(webs.length == 1 ? "web app context created" : webs.length + " web app contexts created");
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread("ProjectClassLoader statistics") {
+
+            @Override
+            public void run() {
+                Handler[] webApps = contexts.getChildHandlersByClass(WebAppContext.class);
+                for (int i = 0; i < webApps.length; i++) {
+                    ClassLoader loader = ((WebAppContext) webApps[i]).getClassLoader();
+                    if (loader instanceof ProjectClassLoader) {
+                        System.err.println("ProjectClassLoader: " + ((ProjectClassLoader) loader).getNegativeCache());
+                    }
+                }
+            }
+        });
+
+        MBeanContainer mBeanContainer = new MBeanContainer(mBeanServer);
+        server.getContainer().addEventListener(mBeanContainer);
+        mBeanContainer.start();
+
+        try {
+            server.start();
+
+            Integer statsPort = Integer.getInteger("rjrstatsport");
+            if (statsPort != null) {
+                try {
+                    new StatisticsServer(server, statsPort).startServer();
+                    System.err.println("StatisticsServer: statistics at http://127.0.0.1:" + statsPort + "/__rjr/stats");
+                } catch (Exception e) {
+                    // the statistics are optional, keep serving the web application
+                    System.err.println("StatisticsServer: can't bind port " + statsPort + ": " + e);
+                }
+            }
+
+            if (timeline != null) {
+                timeline.mark("server started");
+                timeline.print();
+            }
+
+            if (precompileJsps) {
+                int threads = precompileThreads != null ? precompileThreads : Runtime.getRuntime().availableProcessors();
+                for (int i = 0; i < webs.length; i++) {
+                    File dir = webs[i].getBaseResource().getFile();
+                    if (dir == null) {
+                        System.err.println("JspPrecompiler: " + webs[i].getContextPath()
+                                + " is not a directory (a packed WAR?), skipped");
+                        continue;
+                    }
+                    new JspPrecompiler(webs[i], dir, Math.max(1, threads)).start();
+                }
+            }
+
+            if (reload) {
+                for (int i = 0; i < webs.length; i++) {
+                    WebApp webApp = webApps.get(i);
+                    if (webApp.classPath == null) {
+                        System.err.println("WebAppReloader: " + webApp.context + " has no class path (-Drjrclasspath), not reloaded");
+                    } else {
+                        new WebAppReloader(contexts, webs[i], webApp, new File(webApp.dir), splitClassPath(webApp.classPath),
+                                Math.max(0, reloadQuietPeriod)).start();
+                    }
+                }
+            }
+
+            server.join();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(100);
+        }
+        return;
+    }
+
+    /**
+     * A web application to deploy: the main one, or one of the additional ones given with -Drjrwebappcount. Creates
+     * its context, again for every reload.
+     */
+    static class WebApp implements Callable<WebAppContext> {
+
+        final String context;
+
+        final String dir;
+
+        /** The class path, or null. */
+        final String classPath;
+
+        /** The work directory, or null for a temporary one. */
+        final String workDir;
+
+        /** The parent of the class loader, or null for the default. */
+        final ClassLoader parentLoader;
+
+        WebApp(String context, String dir, String classPath, String workDir) {
+            this(context, dir, classPath, workDir, null);
+        }
+
+        WebApp(String context, String dir, String classPath, String workDir, ClassLoader parentLoader) {
+            this.context = context;
+            this.dir = dir;
+            this.classPath = classPath;
+            this.workDir = workDir;
+            this.parentLoader = parentLoader;
+        }
+
+        public WebAppContext call() throws Exception {
+            return createWebAppContext(this.context, this.dir, this.classPath, this.workDir, this.parentLoader);
+        }
+    }
+
+    /**
+     * Moves the jars found in the class paths of all web applications to a class loader they share.
+     * 
+     * @return the web applications, with the shared jars removed from their class paths
+     */
+    private static List<WebApp> shareLibraries(List<WebApp> webApps) throws IOException {
+        List<List<File>> classPaths = new ArrayList<List<File>>();
+        for (WebApp webApp : webApps) {
+            if (webApp.classPath == null) {
+                System.err.println("SharedLibraries: " + webApp.context + " has no class path, nothing shared");
+                return webApps;
+            }
+            classPaths.add(splitClassPath(webApp.classPath));
+        }
+
+        long startTime = System.currentTimeMillis();
+        SharedLibraries sharedLibraries = new SharedLibraries(classPaths);
+        System.err.println("SharedLibraries: " + sharedLibraries.getJars().size() + " jars (" + sharedLibraries.getSize()
+                / 1024 + " KB) shared by " + webApps.size() + " web applications, found in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+        if (sharedLibraries.getJars().isEmpty()) {
+            return webApps;
+        }
+        for (File jar : sharedLibraries.getJars()) {
+            System.err.println("SharedLibraries: sharing " + jar);
+        }
+
+        ClassLoader parent = sharedLibraries.getClassLoader(Jetty6Engine.class.getClassLoader());
+        List<WebApp> result = new ArrayList<WebApp>();
+        for (int i = 0; i < webApps.size(); i++) {
+            WebApp webApp = webApps.get(i);
+            result.add(new WebApp(webApp.context, webApp.dir, sharedLibraries.removeFrom(classPaths.get(i)), webApp.workDir,
+                    parent));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the context of a web application, with its own {@link ProjectClassLoader}.
+     * 
+     * @param context the context path
+     * @param webAppDir the web application directory
+     * @param webAppClassPath the class path of the web application, or null
+     * @param workDir the work directory of the context, or null for a temporary one
+     * @param parentLoader the parent of the class loader, or null for the default
+     * @return the context, not started
+     */
+    static WebAppContext createWebAppContext(String context, String webAppDir, String webAppClassPath, String workDir,
+            ClassLoader parentLoader) throws Exception {
+        String fileMappedBuffer = System.getProperty("rjrfilemappedbuffer");
+        boolean gzip = Boolean.getBoolean("rjrgzip");
+        boolean parallelInit = Boolean.getBoolean("rjrparallelinit");
+
+        WebAppContext web;
+        if (parallelInit) {
+            // servlet initialization mostly waits (on databases, remote services), so use a few threads even
+            // on a single processor
+            int initThreads = Integer.getInteger("rjrinitthreads",
+                    Math.max(4, Runtime.getRuntime().availableProcessors()));
+            web = new ParallelWebAppContext(initThreads);
+        } else {
+            web = new WebAppContext();
+        }
+        web.setContextPath(context);
+        web.setWar(webAppDir);
+
+        if (workDir != null) {
+            // a directory that exists before the context starts is never deleted by Jetty, so the
+            // JSP classes compiled into it are still there at the next launch
+            File tempDir = new File(workDir);
+            tempDir.mkdirs();
+            new JspCache(tempDir, new File(webAppDir)).validate();
+            web.setTempDirectory(tempDir);
+        }
+
+        Map<String, String> initParams = new HashMap<String, String>();
+
+        // Fix issue 7, File locking on windows/Disable Jetty's locking of static files
+        // http://code.google.com/p/run-jetty-run/issues/detail?id=7
+        // by disabling the use of the file mapped buffers. Mapped buffers only lock the
+        // files on Windows, so elsewhere we keep Jetty's faster default unless the launch
+        // configuration says otherwise (-Drjrfilemappedbuffer).
+        if (fileMappedBuffer == null) {
+            fileMappedBuffer = String.valueOf(!System.getProperty("os.name", "").startsWith("Windows"));
+        }
+        initParams.put("org.mortbay.jetty.servlet.Default.useFileMappedBuffer", fileMappedBuffer);
+
+        // DefaultServlet's cache of static content
+        putInitParam(initParams, "org.mortbay.jetty.servlet.Default.maxCacheSize", "rjrmaxcachesize");
+        putInitParam(initParams, "org.mortbay.jetty.servlet.Default.maxCachedFileSize", "rjrmaxcachedfilesize");
+        putInitParam(initParams, "org.mortbay.jetty.servlet.Default.maxCachedFiles", "rjrmaxcachedfiles");
+
+        web.setInitParams(initParams);
+
+        if (gzip) {
+            // added ahead of the filters of web.xml, so that everything the web app and
+            // the DefaultServlet write is compressed
+            FilterHolder gzipHolder = new FilterHolder(GzipFilter.class);
+            putInitParam(gzipHolder, "mimeTypes", "rjrgzipmimetypes");
+            putInitParam(gzipHolder, "minGzipSize", "rjrgzipminsize");
+            putInitParam(gzipHolder, "bufferSize", "rjrgzipbuffersize");
+            web.addFilter(gzipHolder, "/*", Handler.REQUEST);
+        }
+
+        if (webAppClassPath != null) {
+            ProjectClassLoader loader = new ProjectClassLoader(parentLoader, web, webAppClassPath);
+            web.setClassLoader(loader);
+        }
+
+        return web;
+    }
+
+    /**
+     * Splits a class path into its entries.
+     */
+    private static List<File> splitClassPath(String classPath) {
+        List<File> files = new ArrayList<File>();
+        StringTokenizer tokenizer = new StringTokenizer(classPath, File.pathSeparator);
+        while (tokenizer.hasMoreTokens()) {
+            files.add(new File(tokenizer.nextToken()));
+        }
+        return files;
+    }
+
+    /**
+     * Copies a system property to a context init parameter, if the property is set.
+     * 
+     * @param initParams the init parameters of the context
+     * @param name the name of the init parameter
+     * @param property the name of the system property
+     */
+    private static void putInitParam(Map<String, String> initParams, String name, String property) {
+        String value = System.getProperty(property);
+        if (value != null) {
+            initParams.put(name, value);
+        }
+        return;
+    }
+
+    /**
+     * Copies a system property to an init parameter of a filter, if the property is set.
+     * 
+     * @param holder the filter holder
+     * @param name the name of the init parameter
+     * @param property the name of the system property
+     */
+    private static void putInitParam(FilterHolder holder, String name, String property) {
+        String value = System.getProperty(property);
+        if (value != null) {
+            holder.setInitParameter(name, value);
+        }
+        return;
+    }
+
+    /**
+     * Creates Jetty's non-blocking SSL connector, which unlike {@link SslSocketConnector} does not tie up a pool thread
+     * for every idle keep-alive connection.
+     * 
+     * @param keystore the location of the keystore
+     * @param password the keystore password
+     * @param keyPassword the key password
+     * @return the connector
+     */
+    private static AbstractConnector newSslSelectChannelConnector(String keystore, String password, String keyPassword)
+    throws Exception {
+        SslSelectChannelConnector connector = new SslSelectChannelConnector();
+        connector.setKeystore(keystore);
+        connector.setPassword(password);
+        connector.setKeyPassword(keyPassword);
+        return connector;
+    }
+
+    /**
+     * Applies the optional tuning properties common to all connectors. Each property name is the given prefix
+     * followed by the setting, e.g. -Drjracceptors; settings that are not present keep Jetty's defaults.
+     * 
+     * @param connector the connector to configure
+     * @param prefix the prefix of the system properties to read
+     */
+    private static void configureConnector(AbstractConnector connector, String prefix) {
+        Integer acceptors = Integer.getInteger(prefix + "acceptors");
+        if (acceptors != null) {
+            connector.setAcceptors(acceptors);
+        }
+        Integer acceptQueueSize = Integer.getInteger(prefix + "acceptqueuesize");
+        if (acceptQueueSize != null) {
+            connector.setAcceptQueueSize(acceptQueueSize);
+        }
+        Integer requestBufferSize = Integer.getInteger(prefix + "requestbuffersize");
+        if (requestBufferSize != null) {
+            connector.setRequestBufferSize(requestBufferSize);
+        }
+        Integer responseBufferSize = Integer.getInteger(prefix + "responsebuffersize");
+        if (responseBufferSize != null) {
+            connector.setResponseBufferSize(responseBufferSize);
+        }
+        Integer headerBufferSize = Integer.getInteger(prefix + "headerbuffersize");
+        if (headerBufferSize != null) {
+            connector.setHeaderBufferSize(headerBufferSize);
+        }
+        Integer maxIdleTime = Integer.getInteger(prefix + "maxidletime");
+        if (maxIdleTime != null) {
+            connector.setMaxIdleTime(maxIdleTime);
+        }
+        Integer lowResourceMaxIdleTime = Integer.getInteger(prefix + "lowresourcemaxidletime");
+        if (lowResourceMaxIdleTime != null) {
+            connector.setLowResourceMaxIdleTime(lowResourceMaxIdleTime);
+        }
+        return;
+    }
+
+    /**
+     * Records the first request served, and prints the timeline again.
+     */
+    private static class FirstRequestHandler extends HandlerWrapper {
+
+        private final StartupTimeline timeline;
+
+        private volatile boolean served;
+
+        FirstRequestHandler(StartupTimeline timeline) {
+            this.timeline = timeline;
+        }
+
+        @Override
+        public void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch)
+                throws IOException, ServletException {
+            super.handle(target, request, response, dispatch);
+            if (!this.served) {
+                synchronized (this) {
+                    if (!this.served) {
+                        this.served = true;
+                        this.timeline.mark("first request served");
+                        this.timeline.print();
+                    }
+                }
+            }
+            return;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import org.apache.jasper.compiler.JspUtil;
+
+/**
+ * Keeps the JSP classes compiled by Jasper in a work directory that survives relaunches. Jasper only recompiles a JSP
+ * when its source is newer than the class, which misses a source that went back in time (e.g. after reverting it from
+ * version control), and recompiles sources that were merely touched. So before Jetty starts, the MD5 of every JSP is
+ * compared with the one recorded at the previous launch: changed JSPs have their generated classes removed, and
+ * unchanged ones whose time stamp moved get the time stamp of their class adjusted.
+ */
+public class JspCache {
+
+    /** Jasper's scratch directory, as set up by Jetty's WebXmlConfiguration. */
+    private static final String SCRATCH_DIR = "jsp";
+
+    /** The package Jasper generates the JSP classes in. */
+    private static final String JSP_PACKAGE_DIR = "org/apache/jsp";
+
+    private static final String INDEX_FILE = "rjr-jsp-index.properties";
+
+    private final File workDir;
+
+    private final File webAppDir;
+
+    private int kept;
+
+    private int invalidated;
+
+    /**
+     * @param workDir the work (temp) directory of the web application context
+     * @param webAppDir the root directory of the web application
+     */
+    public JspCache(File workDir, File webAppDir) {
+        this.workDir = workDir;
+        this.webAppDir = webAppDir;
+    }
+
+    /**
+     * Removes the compiled classes of the JSPs that changed since the last launch, and records the current state.
+     */
+    public void validate() throws IOException {
+        Properties previous = new Properties();
+        File indexFile = new File(this.workDir, INDEX_FILE);
+        if (indexFile.isFile()) {
+            InputStream in = new FileInputStream(indexFile);
+            try {
+                previous.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        Properties current = new Properties();
+        this.validate(this.webAppDir, "/", previous, current);
+
+        OutputStream out = new FileOutputStream(indexFile);
+        try {
+            current.store(out, "run-jetty-run JSP cache: <jsp>=<last modified>:<md5>");
+        } finally {
+            out.close();
+        }
+
+        System.err.println("JspCache: " + this.workDir + ", kept " + this.kept + ", invalidated " + this.invalidated + " JSPs");
+        return;
+    }
+
+    private void validate(File dir, String path, Properties previous, Properties current) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                this.validate(file, path + name + "/", previous, current);
+                continue;
+            }
+            if (!name.endsWith(".jsp") && !name.endsWith(".jspx")) {
+                continue;
+            }
+
+            String jsp = path + name;
+            long lastModified = file.lastModified();
+            String recorded = previous.getProperty(jsp);
+            String hash;
+            if (recorded != null && recorded.startsWith(lastModified + ":")) {
+                // unchanged since the last launch, no need to read it
+                hash = recorded.substring(recorded.indexOf(':') + 1);
+                this.kept++;
+            } else {
+                hash = md5(file);
+                if (recorded != null && recorded.endsWith(":" + hash)) {
+                    this.touchClasses(jsp, lastModified);
+                    this.kept++;
+                } else {
+                    this.removeClasses(jsp);
+                    this.invalidated++;
+                }
+            }
+            current.setProperty(jsp, lastModified + ":" + hash);
+        }
+        return;
+    }
+
+    /**
+     * Makes the generated classes of a JSP at least as new as its source, so that Jasper keeps them.
+     */
+    private void touchClasses(String jsp, long lastModified) {
+        File[] generated = this.findGenerated(jsp);
+        for (int i = 0; i < generated.length; i++) {
+            if (generated[i].lastModified() < lastModified) {
+                generated[i].setLastModified(lastModified);
+            }
+        }
+        return;
+    }
+
+    private void removeClasses(String jsp) {
+        File[] generated = this.findGenerated(jsp);
+        for (int i = 0; i < generated.length; i++) {
+            generated[i].delete();
+        }
+        return;
+    }
+
+    /**
+     * Finds the source and class files Jasper generated for a JSP, using the same name mangling as Jasper.
+     */
+    private File[] findGenerated(String jsp) {
+        int slash = jsp.lastIndexOf('/');
+        String packageName = JspUtil.makeJavaPackage(jsp.substring(0, slash + 1));
+        File packageDir = new File(new File(this.workDir, SCRATCH_DIR), JSP_PACKAGE_DIR);
+        if (packageName.length() > 0) {
+            packageDir = new File(packageDir, packageName.replace('.', '/'));
+        }
+        final String className = JspUtil.makeJavaIdentifier(jsp.substring(slash + 1));
+        File[] generated = packageDir.listFiles(new FilenameFilter() {
+
+            public boolean accept(File dir, String name) {
+                return name.equals(className + ".java") || name.equals(className + ".class")
+                        || name.startsWith(className + "$");
+            }
+        });
+        return generated != null ? generated : new File[0];
+    }
+
+    private static String md5(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        StringBuilder sb = new StringBuilder();
+        byte[] bytes = digest.digest();
+        for (int i = 0; i < bytes.length; i++) {
+            sb.append(Integer.toHexString((bytes[i] & 0xff) | 0x100).substring(1));
+        }
+        return sb.toString();
+    }
+}
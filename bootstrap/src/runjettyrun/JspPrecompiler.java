@@ -0,0 +1,327 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mortbay.jetty.handler.ContextHandler;
+import org.mortbay.jetty.servlet.ServletHolder;
+import org.mortbay.jetty.webapp.WebAppContext;
+
+/**
+ * Compiles all JSPs of a started web application in the background, so that the first click on a page doesn't have to
+ * wait for Jasper. The context's JspServlet is called in-process for each JSP with the <code>jsp_precompile</code>
+ * parameter (JSP.11.4.2), which makes it translate and compile the page without executing it. No socket is opened,
+ * so this works for HTTPS-only launches too, and the filters, security constraints and request statistics of the
+ * server are not involved. Calls are made from a fixed pool of worker threads.
+ * <p>
+ * The JSPs under WEB-INF are compiled too, as the views of MVC frameworks live there; only WEB-INF/classes,
+ * WEB-INF/lib and META-INF are skipped.
+ */
+public class JspPrecompiler extends Thread {
+
+    /** The name of the JspServlet in Jetty's webdefault.xml. */
+    private static final String JSP_SERVLET_NAME = "jsp";
+
+    private final WebAppContext context;
+
+    private final File webAppDir;
+
+    private final int threads;
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param context the started context of the web application
+     * @param webAppDir the root directory of the web application
+     * @param threads the number of JSPs to compile concurrently
+     */
+    public JspPrecompiler(WebAppContext context, File webAppDir, int threads) {
+        super("JspPrecompiler");
+        this.context = context;
+        this.webAppDir = webAppDir;
+        this.threads = threads;
+        this.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        final ServletHolder holder = this.context.getServletHandler().getServlet(JSP_SERVLET_NAME);
+        if (holder == null) {
+            System.err.println("JspPrecompiler: " + this.context.getContextPath() + " has no servlet named "
+                    + JSP_SERVLET_NAME + ", skipped");
+            return;
+        }
+
+        List<String> jsps = new ArrayList<String>();
+        this.findJsps(this.webAppDir, "/", jsps);
+        if (jsps.isEmpty()) {
+            return;
+        }
+
+        System.err.println("JspPrecompiler: compiling " + jsps.size() + " JSPs with " + this.threads + " threads");
+        long start = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        for (final String jsp : jsps) {
+            executor.execute(new Runnable() {
+
+                public void run() {
+                    JspPrecompiler.this.compile(holder, jsp);
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            return;
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        System.err.println("JspPrecompiler: compiled " + (jsps.size() - this.failed.get()) + " of " + jsps.size()
+                + " JSPs in " + elapsed + " ms");
+        return;
+    }
+
+    /**
+     * Calls the JspServlet for a single JSP with <code>jsp_precompile</code>, in the context of the web application,
+     * and reports the outcome.
+     * 
+     * @param jsp the path of the JSP, relative to the context
+     */
+    private void compile(ServletHolder holder, String jsp) {
+        long start = System.currentTimeMillis();
+        Thread thread = Thread.currentThread();
+        ClassLoader loader = thread.getContextClassLoader();
+        thread.setContextClassLoader(this.context.getClassLoader());
+        ContextHandler.SContext previous = ParallelWebAppContext.setCurrentContext(this.context.getServletContext());
+        try {
+            PrecompileExchange exchange = new PrecompileExchange(this.context.getContextPath(), jsp);
+            holder.handle(exchange.getRequest(), exchange.getResponse());
+            long elapsed = System.currentTimeMillis() - start;
+            if (exchange.status < 400) {
+                System.err.println("JspPrecompiler: " + jsp + " compiled in " + elapsed + " ms");
+            } else {
+                this.failed.incrementAndGet();
+                System.err.println("JspPrecompiler: " + jsp + " failed with status " + exchange.status + " after "
+                        + elapsed + " ms");
+            }
+        } catch (Exception e) {
+            this.failed.incrementAndGet();
+            System.err.println("JspPrecompiler: " + jsp + " failed: " + e);
+        } finally {
+            ParallelWebAppContext.setCurrentContext(previous);
+            thread.setContextClassLoader(loader);
+        }
+        return;
+    }
+
+    /**
+     * Collects the JSPs of the web application directory, including those under WEB-INF.
+     */
+    private void findJsps(File dir, String path, List<String> jsps) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                String child = path + name + "/";
+                if (!"/META-INF/".equals(child) && !"/WEB-INF/classes/".equals(child) && !"/WEB-INF/lib/".equals(child)) {
+                    this.findJsps(file, child, jsps);
+                }
+            } else if (name.endsWith(".jsp") || name.endsWith(".jspx")) {
+                jsps.add(path + name);
+            }
+        }
+        return;
+    }
+
+    /**
+     * The request asking the JspServlet to precompile a JSP, and the response recording its status. Both are proxies
+     * answering what the JspServlet asks for, and defaults otherwise; the output, if any, is discarded.
+     */
+    private static class PrecompileExchange implements InvocationHandler {
+
+        private final String contextPath;
+
+        private final String servletPath;
+
+        private final Map<String, Object> attributes = Collections.synchronizedMap(new HashMap<String, Object>());
+
+        private final HttpServletRequest request;
+
+        private final HttpServletResponse response;
+
+        private volatile int status = HttpServletResponse.SC_OK;
+
+        PrecompileExchange(String contextPath, String servletPath) {
+            this.contextPath = "/".equals(contextPath) ? "" : contextPath;
+            this.servletPath = servletPath;
+            ClassLoader loader = JspPrecompiler.class.getClassLoader();
+            this.request = (HttpServletRequest) Proxy.newProxyInstance(loader,
+                    new Class<?>[] { HttpServletRequest.class }, this);
+            this.response = (HttpServletResponse) Proxy.newProxyInstance(loader,
+                    new Class<?>[] { HttpServletResponse.class }, this);
+        }
+
+        HttpServletRequest getRequest() {
+            return this.request;
+        }
+
+        HttpServletResponse getResponse() {
+            return this.response;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                return "PrecompileExchange[" + this.servletPath + "]";
+            }
+            if (proxy == this.request) {
+                return this.invokeRequest(name, method.getReturnType(), args);
+            }
+            return this.invokeResponse(name, method.getReturnType(), args);
+        }
+
+        private Object invokeRequest(String name, Class<?> type, Object[] args) {
+            if ("getServletPath".equals(name)) {
+                return this.servletPath;
+            } else if ("getContextPath".equals(name)) {
+                return this.contextPath;
+            } else if ("getRequestURI".equals(name)) {
+                return this.contextPath + this.servletPath;
+            } else if ("getRequestURL".equals(name)) {
+                return new StringBuffer("http://localhost").append(this.contextPath).append(this.servletPath);
+            } else if ("getQueryString".equals(name)) {
+                return "jsp_precompile=true";
+            } else if ("getParameter".equals(name)) {
+                return "jsp_precompile".equals(args[0]) ? "true" : null;
+            } else if ("getParameterValues".equals(name)) {
+                return "jsp_precompile".equals(args[0]) ? new String[] { "true" } : null;
+            } else if ("getParameterMap".equals(name)) {
+                return Collections.singletonMap("jsp_precompile", new String[] { "true" });
+            } else if ("getParameterNames".equals(name)) {
+                return Collections.enumeration(Collections.singleton("jsp_precompile"));
+            } else if ("getAttribute".equals(name)) {
+                return this.attributes.get(args[0]);
+            } else if ("setAttribute".equals(name)) {
+                if (args[1] == null) {
+                    this.attributes.remove(args[0]);
+                } else {
+                    this.attributes.put((String) args[0], args[1]);
+                }
+                return null;
+            } else if ("removeAttribute".equals(name)) {
+                this.attributes.remove(args[0]);
+                return null;
+            } else if ("getAttributeNames".equals(name)) {
+                synchronized (this.attributes) {
+                    return Collections.enumeration(new ArrayList<String>(this.attributes.keySet()));
+                }
+            } else if ("getMethod".equals(name)) {
+                return "GET";
+            } else if ("getProtocol".equals(name)) {
+                return "HTTP/1.1";
+            } else if ("getScheme".equals(name)) {
+                return "http";
+            } else if ("getServerName".equals(name) || "getLocalName".equals(name) || "getRemoteHost".equals(name)) {
+                return "localhost";
+            } else if ("getLocale".equals(name)) {
+                return Locale.getDefault();
+            } else if ("getLocales".equals(name)) {
+                return Collections.enumeration(Collections.singleton(Locale.getDefault()));
+            } else if ("getHeaders".equals(name) || "getHeaderNames".equals(name)) {
+                return Collections.enumeration(Collections.<String> emptyList());
+            } else if ("getIntHeader".equals(name) || "getContentLength".equals(name)) {
+                return -1;
+            } else if ("getDateHeader".equals(name)) {
+                return -1L;
+            }
+            return defaultValue(type);
+        }
+
+        private Object invokeResponse(String name, Class<?> type, Object[] args) {
+            if ("setStatus".equals(name) || "sendError".equals(name)) {
+                this.status = (Integer) args[0];
+                return null;
+            } else if ("sendRedirect".equals(name)) {
+                this.status = HttpServletResponse.SC_FOUND;
+                return null;
+            } else if ("getOutputStream".equals(name)) {
+                return new ServletOutputStream() {
+
+                    @Override
+                    public void write(int b) {
+                    }
+                };
+            } else if ("getWriter".equals(name)) {
+                return new PrintWriter(new OutputStream() {
+
+                    @Override
+                    public void write(int b) {
+                    }
+                });
+            } else if ("getCharacterEncoding".equals(name)) {
+                return "ISO-8859-1";
+            } else if ("getLocale".equals(name)) {
+                return Locale.getDefault();
+            } else if ("encodeURL".equals(name) || "encodeRedirectURL".equals(name) || "encodeUrl".equals(name)
+                    || "encodeRedirectUrl".equals(name)) {
+                return args[0];
+            }
+            return defaultValue(type);
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == Boolean.TYPE) {
+                return Boolean.FALSE;
+            } else if (type == Integer.TYPE) {
+                return 0;
+            } else if (type == Long.TYPE) {
+                return 0L;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used set of class and resource names that were not found on the class path. Frameworks
+ * probe for lots of optional classes and resources; with this cache a repeated miss costs a hash lookup, instead of a
+ * search of the whole class path.
+ * <p>
+ * Jars don't change while the web application runs, but directories do. So each miss remembers, for every directory
+ * of the class path, the last modified time of the closest existing parent of where the resource would be. Creating
+ * the resource changes that time, which makes the cached miss stale. These time stamps are checked again at most once
+ * per recheck interval (-Drjrnegativecacherecheck, in milliseconds), so that a hit within the interval doesn't touch
+ * the file system. When the web application is reloaded on changes, its new class loader starts with an empty cache.
+ */
+public class NegativeLookupCache {
+
+    private final int maxSize;
+
+    /** The milliseconds during which a miss is trusted without checking the directories again. */
+    private final long recheckInterval;
+
+    private final Map<String, Miss> misses;
+
+    /** The directories of the class path, replaced as a whole when it changes. */
+    private volatile List<File> directories = Collections.emptyList();
+
+    private long hits;
+
+    private long stale;
+
+    private long evictions;
+
+    /**
+     * @param maxSize the maximum number of names to remember
+     */
+    public NegativeLookupCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.recheckInterval = Long.getLong("rjrnegativecacherecheck", 1000);
+        this.misses = new LinkedHashMap<String, Miss>(Math.min(maxSize, 1024), 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Miss> eldest) {
+                if (this.size() > maxSize) {
+                    NegativeLookupCache.this.evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Sets the directories of the class path, forgetting all misses.
+     * 
+     * @param directories the directories of the class path
+     */
+    public void setDirectories(List<File> directories) {
+        synchronized (this) {
+            this.directories = Collections.unmodifiableList(new ArrayList<File>(directories));
+            this.misses.clear();
+        }
+        return;
+    }
+
+    /**
+     * @param name the resource name
+     * @return true if the resource is known to be missing
+     */
+    public boolean isMissing(String name) {
+        Miss miss;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            miss = this.misses.get(name);
+            if (miss == null) {
+                return false;
+            }
+            if (now - miss.checked < this.recheckInterval) {
+                this.hits++;
+                return true;
+            }
+        }
+
+        // outside of the lock, as it reads the file system
+        List<File> directories = this.directories;
+        boolean valid = miss.directories == directories && Arrays.equals(miss.stamps, stamp(name, directories));
+        synchronized (this) {
+            if (!valid) {
+                if (this.misses.get(name) == miss) {
+                    this.misses.remove(name);
+                }
+                this.stale++;
+                return false;
+            }
+            miss.checked = now;
+            this.hits++;
+        }
+        return true;
+    }
+
+    /**
+     * Records that a resource was not found.
+     * 
+     * @param name the resource name
+     */
+    public void addMissing(String name) {
+        if (this.maxSize <= 0) {
+            return;
+        }
+        List<File> directories = this.directories;
+        Miss miss = new Miss(directories, stamp(name, directories), System.currentTimeMillis());
+        synchronized (this) {
+            if (directories == this.directories) {
+                this.misses.put(name, miss);
+            }
+        }
+        return;
+    }
+
+    public synchronized int size() {
+        return this.misses.size();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of cached misses dropped because a directory changed
+     */
+    public synchronized long getStale() {
+        return this.stale;
+    }
+
+    /**
+     * @return the number of cached misses dropped to stay within the maximum size
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "NegativeLookupCache[size=" + this.misses.size() + "/" + this.maxSize + ", hits=" + this.hits + ", stale="
+                + this.stale + ", evictions=" + this.evictions + "]";
+    }
+
+    /**
+     * A name not found, with the time stamps of the directories that would hold it.
+     */
+    private static class Miss {
+
+        /** The directories the time stamps were taken of. */
+        final List<File> directories;
+
+        final long[] stamps;
+
+        /** When the time stamps were last taken or checked. */
+        long checked;
+
+        Miss(List<File> directories, long[] stamps, long checked) {
+            this.directories = directories;
+            this.stamps = stamps;
+            this.checked = checked;
+        }
+    }
+
+    private static long[] stamp(String name, List<File> directories) {
+        long[] stamps = new long[directories.size()];
+        for (int i = 0; i < stamps.length; i++) {
+            File dir = directories.get(i);
+            File parent = new File(dir, name).getParentFile();
+            while (parent != null && !parent.exists() && !parent.equals(dir)) {
+                parent = parent.getParentFile();
+            }
+            stamps[i] = parent != null ? parent.lastModified() : 0;
+        }
+        return stamps;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mortbay.jetty.Handler;
+import org.mortbay.jetty.handler.ContextHandler;
+import org.mortbay.jetty.handler.ContextHandlerCollection;
+import org.mortbay.util.MultiException;
+
+/**
+ * Starts its contexts concurrently, so that the startup of several web applications (class path indexing, servlet and
+ * listener initialization) overlaps rather than adds up.
+ */
+public class ParallelContextHandlerCollection extends ContextHandlerCollection {
+
+    public ParallelContextHandlerCollection() {
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        Handler[] handlers = this.getHandlers();
+        if (handlers != null && handlers.length > 1) {
+            this.startConcurrently(handlers);
+        }
+        // starts what is left (nothing, unless a context failed) and maps the contexts
+        super.doStart();
+    }
+
+    private void startConcurrently(Handler[] handlers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(handlers.length);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < handlers.length; i++) {
+                final Handler handler = handlers[i];
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    public Void call() throws Exception {
+                        long startTime = System.currentTimeMillis();
+                        handler.start();
+                        if (handler instanceof ContextHandler) {
+                            System.err.println("ParallelContextHandlerCollection: started "
+                                    + ((ContextHandler) handler).getContextPath() + " in "
+                                    + (System.currentTimeMillis() - startTime) + " ms");
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            MultiException exceptions = new MultiException();
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    exceptions.add(e.getCause());
+                }
+            }
+            exceptions.ifExceptionThrow();
+        } finally {
+            executor.shutdown();
+        }
+        return;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mortbay.jetty.handler.ContextHandler;
+import org.mortbay.jetty.servlet.FilterHolder;
+import org.mortbay.jetty.servlet.PathMap;
+import org.mortbay.jetty.servlet.ServletHandler;
+import org.mortbay.jetty.servlet.ServletHolder;
+import org.mortbay.util.MultiException;
+
+/**
+ * Initializes the servlets of a web application concurrently. The servlets are still started in the order of their
+ * load-on-startup values, as the servlet specification requires, but the servlets that share a value have no order
+ * among themselves and are started together. The time each servlet took is logged.
+ */
+public class ParallelServletHandler extends ServletHandler {
+
+    private final int threads;
+
+    /**
+     * @param threads the maximum number of servlets initialized at the same time
+     */
+    public ParallelServletHandler(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        MultiException exceptions = new MultiException();
+
+        FilterHolder[] filters = this.getFilters();
+        if (filters != null) {
+            for (int i = 0; i < filters.length; i++) {
+                filters[i].start();
+            }
+        }
+
+        ServletHolder[] servlets = this.getServlets();
+        if (servlets == null) {
+            return;
+        }
+        servlets = servlets.clone();
+        Arrays.sort(servlets);
+
+        // the servlets run by the worker threads see the class loader and the context of the web application
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final ContextHandler.SContext context = ContextHandler.getCurrentContext();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.threads, servlets.length));
+        try {
+            int from = 0;
+            while (from < servlets.length) {
+                int to = from + 1;
+                while (to < servlets.length && servlets[to].getInitOrder() == servlets[from].getInitOrder()) {
+                    to++;
+                }
+
+                List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                for (int i = from; i < to; i++) {
+                    final ServletHolder servlet = servlets[i];
+                    if (!this.resolveForcedPath(servlet, exceptions)) {
+                        continue;
+                    }
+                    futures.add(executor.submit(new Callable<Void>() {
+
+                        public Void call() throws Exception {
+                            Thread thread = Thread.currentThread();
+                            ClassLoader oldLoader = thread.getContextClassLoader();
+                            thread.setContextClassLoader(loader);
+                            ContextHandler.SContext oldContext = ParallelWebAppContext.setCurrentContext(context);
+                            try {
+                                long startTime = System.currentTimeMillis();
+                                servlet.start();
+                                if (servlet.getInitOrder() >= 0) {
+                                    System.err.println("ParallelServletHandler: initialized " + servlet.getName()
+                                            + " in " + (System.currentTimeMillis() - startTime) + " ms");
+                                }
+                            } finally {
+                                ParallelWebAppContext.setCurrentContext(oldContext);
+                                thread.setContextClassLoader(oldLoader);
+                            }
+                            return null;
+                        }
+                    }));
+                }
+
+                // the next load-on-startup value waits for this one
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        exceptions.add(e.getCause());
+                    }
+                }
+                from = to;
+            }
+        } finally {
+            executor.shutdown();
+        }
+        exceptions.ifExceptionThrow();
+    }
+
+    /**
+     * Gives a servlet declared with a jsp-file the class of the servlet mapped to its path, as the ServletHandler
+     * does before starting it.
+     *
+     * @return false if there is no such servlet
+     */
+    private boolean resolveForcedPath(ServletHolder servlet, MultiException exceptions) {
+        if (servlet.getClassName() != null || servlet.getForcedPath() == null) {
+            return true;
+        }
+        PathMap.Entry entry = this.getHolderEntry(servlet.getForcedPath());
+        ServletHolder forced = entry == null ? null : (ServletHolder) entry.getValue();
+        if (forced == null || forced.getClassName() == null) {
+            exceptions.add(new IllegalStateException("No forced path servlet for " + servlet.getForcedPath()));
+            return false;
+        }
+        servlet.setClassName(forced.getClassName());
+        return true;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EventListener;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.servlet.ServletContextListener;
+
+import org.mortbay.jetty.handler.ContextHandler;
+import org.mortbay.jetty.webapp.WebAppContext;
+
+/**
+ * A web application context that initializes its servlets concurrently (see {@link ParallelServletHandler}) and logs
+ * the time each servlet and each context listener took to start.
+ * <p>
+ * The context listeners are still called one after the other: the servlet specification has them notified in the
+ * order of web.xml, and listeners commonly depend on what an earlier one has set up.
+ */
+public class ParallelWebAppContext extends WebAppContext {
+
+    /** ContextHandler's thread local of the context being started or serving a request; private in Jetty 6. */
+    private static final ThreadLocal<Object> CURRENT_CONTEXT = getCurrentContextThreadLocal();
+
+    /**
+     * @param threads the maximum number of servlets initialized at the same time
+     */
+    public ParallelWebAppContext(int threads) {
+        super(null, null, new ParallelServletHandler(threads), null);
+    }
+
+    @Override
+    public void setEventListeners(EventListener[] eventListeners) {
+        if (eventListeners != null) {
+            eventListeners = eventListeners.clone();
+            for (int i = 0; i < eventListeners.length; i++) {
+                eventListeners[i] = timed(eventListeners[i]);
+            }
+        }
+        super.setEventListeners(eventListeners);
+    }
+
+    /**
+     * Makes a context the current one of the calling thread, as Jetty does on the thread that starts the context, so
+     * that the servlets initialized on another thread find it (ServletHolder needs it for run-as, and servlets may
+     * call ContextHandler.getCurrentContext() in init).
+     * 
+     * @param context the context, or null for none
+     * @return the previous context of the thread, to set back once done
+     */
+    static ContextHandler.SContext setCurrentContext(ContextHandler.SContext context) {
+        Object previous = CURRENT_CONTEXT.get();
+        if (context == null) {
+            CURRENT_CONTEXT.remove();
+        } else {
+            CURRENT_CONTEXT.set(context);
+        }
+        return (ContextHandler.SContext) previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ThreadLocal<Object> getCurrentContextThreadLocal() {
+        try {
+            Field field = ContextHandler.class.getDeclaredField("__context");
+            field.setAccessible(true);
+            return (ThreadLocal<Object>) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("-Drjrparallelinit needs the Jetty version it was written for", e);
+        }
+    }
+
+    /**
+     * Wraps a context listener into a proxy that logs how long its contextInitialized took. The proxy implements all
+     * the interfaces of the listener, so that it is still told of the other events it listens to.
+     */
+    private static EventListener timed(EventListener listener) {
+        if (!(listener instanceof ServletContextListener)
+                || (Proxy.isProxyClass(listener.getClass()) && Proxy.getInvocationHandler(listener) instanceof TimedListener)) {
+            return listener;
+        }
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for (Class<?> c = listener.getClass(); c != null; c = c.getSuperclass()) {
+            addInterfaces(c, interfaces);
+        }
+        try {
+            return (EventListener) Proxy.newProxyInstance(listener.getClass().getClassLoader(),
+                    interfaces.toArray(new Class<?>[interfaces.size()]), new TimedListener(listener));
+        } catch (IllegalArgumentException e) {
+            // an interface the proxy cannot implement (not visible, or package private): keep it untimed
+            return listener;
+        }
+    }
+
+    private static void addInterfaces(Class<?> c, Set<Class<?>> interfaces) {
+        for (Class<?> i : c.getInterfaces()) {
+            if (interfaces.add(i)) {
+                addInterfaces(i, interfaces);
+            }
+        }
+    }
+
+    private static class TimedListener implements InvocationHandler {
+
+        private final EventListener listener;
+
+        TimedListener(EventListener listener) {
+            this.listener = listener;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            long startTime = System.currentTimeMillis();
+            try {
+                return method.invoke(this.listener, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (method.getName().equals("contextInitialized")) {
+                    System.err.println("ParallelWebAppContext: initialized " + this.listener.getClass().getName()
+                            + " in " + (System.currentTimeMillis() - startTime) + " ms");
+                }
+            }
+        }
+    }
+}
@@ -15,6 +15,14 @@ package runjettyrun;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Manifest;
 
 import org.mortbay.jetty.webapp.WebAppClassLoader;
 import org.mortbay.jetty.webapp.WebAppContext;
@@ -30,8 +38,22 @@ public class ProjectClassLoader extends WebAppClassLoader {
 
     private boolean initialized = false;
 
+    /** Index of the project class path, or null when an entry could not be indexed. */
+    private ClassPathIndex index = new ClassPathIndex();
+
+    /** Names not found on the class path, sized with -Drjrnegativecachesize (0 disables it). */
+    private final NegativeLookupCache negativeCache = new NegativeLookupCache(Integer.getInteger("rjrnegativecachesize", 10000));
+
     public ProjectClassLoader(WebAppContext context, String projectClassPath) throws IOException {
-        super(context);
+        this(null, context, projectClassPath);
+    }
+
+    /**
+     * @param parent the parent class loader, e.g. the one of the jars shared by the web applications; null for the
+     *        default
+     */
+    public ProjectClassLoader(ClassLoader parent, WebAppContext context, String projectClassPath) throws IOException {
+        super(parent, context);
 
         /*
          * As reported in these bugs:
@@ -44,6 +66,13 @@ public class ProjectClassLoader extends WebAppClassLoader {
          * away from the standard path separator, I'm choosing to split the projectClassPath, and hand each entry to the
          * super class, one at a time.
          */
+        if (this.getURLs().length > 0) {
+            // the context's extra class path was added by the super class, before the index existed
+            this.index = null;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<File> files = new ArrayList<File>();
         int start = 0;
         int length = projectClassPath.length();
         while (start < length) {
@@ -53,12 +82,35 @@ public class ProjectClassLoader extends WebAppClassLoader {
             }
             if (index > start) {
                 String entry = projectClassPath.substring(start, index);
-                System.err.println("ProjectClassLoader: entry=" + entry);
+                // listed in getURLs(), which Jasper compiles against; the super class only opens the jars when the
+                // index is disabled, the index reads them otherwise
                 super.addClassPath(entry);
+                files.add(new File(entry));
             }
             start = index + 1;
         }
 
+        // -Drjrparallelindex opens the jars concurrently, before the context starts
+        int threads = Boolean.getBoolean("rjrparallelindex") ? Runtime.getRuntime().availableProcessors() : 1;
+        if (this.index != null) {
+            try {
+                this.index.addAll(files, threads);
+            } catch (IOException e) {
+                this.disableIndex(e);
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (this.index != null) {
+            int directories = this.index.getDirectories().size();
+            System.err.println("ProjectClassLoader: " + files.size() + " entries, " + (this.index.size() - directories) + " jars, "
+                    + directories + " directories, " + this.index.getPackageCount() + " packages indexed in " + elapsed
+                    + " ms using " + threads + " thread(s)");
+        } else {
+            System.err.println("ProjectClassLoader: " + files.size() + " entries added in " + elapsed + " ms");
+        }
+
+        this.updateDirectories();
         this.initialized = true;
     }
 
@@ -73,6 +125,10 @@ public class ProjectClassLoader extends WebAppClassLoader {
             if (!classPath.endsWith("WEB-INF/classes/")) {
                 return;
             }
+            super.addClassPath(classPath);
+            this.addToIndex(Resource.newResource(classPath).getFile());
+            this.updateDirectories();
+            return;
         }
         super.addClassPath(classPath);
         return;
@@ -90,4 +146,188 @@ public class ProjectClassLoader extends WebAppClassLoader {
         super.addJars(lib);
         return;
     }
+
+    /**
+     * Finds the class through the index, so that only the jars holding its package, and the directories, are
+     * searched.
+     */
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String path = name.replace('.', '/') + ".class";
+        if (this.index == null) {
+            if (this.negativeCache.isMissing(path)) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                return super.findClass(name);
+            } catch (ClassNotFoundException e) {
+                this.negativeCache.addMissing(path);
+                throw e;
+            }
+        }
+
+        ClassPathIndex.Entry entry = this.find(path);
+        if (entry == null) {
+            throw new ClassNotFoundException(name);
+        }
+        try {
+            ClassPathIndex.ClassFile classFile = entry.getClassFile(path);
+            if (classFile == null) {
+                throw new ClassNotFoundException(name);
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot > 0) {
+                this.definePackage(name.substring(0, dot), entry);
+            }
+            CodeSource codeSource = new CodeSource(entry.getURL(), classFile.getCodeSigners());
+            byte[] bytes = classFile.getBytes();
+            return this.defineClass(name, bytes, 0, bytes.length, codeSource);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    @Override
+    public URL findResource(String name) {
+        if (this.index == null) {
+            if (this.negativeCache.isMissing(name)) {
+                return null;
+            }
+            URL url = super.findResource(name);
+            if (url == null) {
+                this.negativeCache.addMissing(name);
+            }
+            return url;
+        }
+
+        ClassPathIndex.Entry entry = this.find(name);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return entry.getResource(name);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Enumeration<URL> findResources(String name) throws IOException {
+        if (this.negativeCache.isMissing(name)) {
+            return Collections.enumeration(Collections.<URL> emptyList());
+        }
+        if (this.index == null) {
+            Enumeration<URL> urls = super.findResources(name);
+            if (!urls.hasMoreElements()) {
+                this.negativeCache.addMissing(name);
+            }
+            return urls;
+        }
+
+        List<URL> urls = new ArrayList<URL>();
+        for (ClassPathIndex.Entry entry : this.index.findAll(name)) {
+            urls.add(entry.getResource(name));
+        }
+        if (urls.isEmpty()) {
+            this.negativeCache.addMissing(name);
+        }
+        return Collections.enumeration(urls);
+    }
+
+    /**
+     * @return the cache of names that were not found on the class path
+     */
+    public NegativeLookupCache getNegativeCache() {
+        return this.negativeCache;
+    }
+
+    /**
+     * Releases the jars of the class path index; called when the web application is reloaded.
+     */
+    public void close() {
+        if (this.index != null) {
+            this.index.close();
+        }
+        return;
+    }
+
+    /**
+     * Finds the entry containing a resource, remembering the resources that can't be found.
+     */
+    private ClassPathIndex.Entry find(String name) {
+        if (this.negativeCache.isMissing(name)) {
+            return null;
+        }
+        ClassPathIndex.Entry entry = this.index.find(name);
+        if (entry == null) {
+            this.negativeCache.addMissing(name);
+        }
+        return entry;
+    }
+
+    private void addToIndex(File file) {
+        if (this.index == null || file == null) {
+            return;
+        }
+        try {
+            this.index.add(file);
+        } catch (IOException e) {
+            this.disableIndex(e);
+        }
+        return;
+    }
+
+    /**
+     * Falls back to the linear search of URLClassLoader for the whole class path.
+     */
+    private void disableIndex(IOException e) {
+        System.err.println("ProjectClassLoader: class path index disabled: " + e);
+        this.index.close();
+        this.index = null;
+        return;
+    }
+
+    /**
+     * Hands the directories of the class path to the cache of misses, which forgets the misses.
+     */
+    private void updateDirectories() {
+        if (this.index != null) {
+            this.negativeCache.setDirectories(this.index.getDirectories());
+            return;
+        }
+        List<File> directories = new ArrayList<File>();
+        for (URL url : this.getURLs()) {
+            if (!"file".equals(url.getProtocol())) {
+                continue;
+            }
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                file = new File(url.getPath());
+            }
+            if (file.isDirectory()) {
+                directories.add(file);
+            }
+        }
+        this.negativeCache.setDirectories(directories);
+        return;
+    }
+
+    private void definePackage(String packageName, ClassPathIndex.Entry entry) throws IOException {
+        if (this.getPackage(packageName) != null) {
+            return;
+        }
+        try {
+            Manifest manifest = entry.getManifest();
+            if (manifest != null) {
+                this.definePackage(packageName, manifest, entry.getURL());
+            } else {
+                this.definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        } catch (IllegalArgumentException e) {
+            // already defined by a concurrent call
+        }
+        return;
+    }
 }
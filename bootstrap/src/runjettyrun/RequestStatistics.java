@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of the requests to one URL pattern.
+ */
+public class RequestStatistics implements RequestStatisticsMBean {
+
+    private final String pattern;
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private volatile long startTime = System.currentTimeMillis();
+
+    public RequestStatistics(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param micros the time taken to handle the request
+     * @param status the status of the response
+     * @param in the bytes of request content read
+     * @param out the bytes of response content written
+     */
+    public void record(long micros, int status, long in, long out) {
+        this.latency.record(micros);
+        if (status >= 500) {
+            this.errors.incrementAndGet();
+        }
+        this.bytesIn.addAndGet(in);
+        this.bytesOut.addAndGet(out);
+        return;
+    }
+
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    public long getRequests() {
+        return this.latency.getCount();
+    }
+
+    public long getErrors() {
+        return this.errors.get();
+    }
+
+    public long getBytesIn() {
+        return this.bytesIn.get();
+    }
+
+    public long getBytesOut() {
+        return this.bytesOut.get();
+    }
+
+    public double getRequestsPerSecond() {
+        long elapsed = System.currentTimeMillis() - this.startTime;
+        return elapsed <= 0 ? 0 : this.latency.getCount() * 1000.0 / elapsed;
+    }
+
+    public double getLatencyMean() {
+        return this.latency.getMean() / 1000.0;
+    }
+
+    public double getLatency50() {
+        return this.latency.getPercentile(50) / 1000.0;
+    }
+
+    public double getLatency95() {
+        return this.latency.getPercentile(95) / 1000.0;
+    }
+
+    public double getLatency99() {
+        return this.latency.getPercentile(99) / 1000.0;
+    }
+
+    public double getLatencyMax() {
+        return this.latency.getMax() / 1000.0;
+    }
+
+    public void reset() {
+        this.latency.reset();
+        this.errors.set(0);
+        this.bytesIn.set(0);
+        this.bytesOut.set(0);
+        this.startTime = System.currentTimeMillis();
+        return;
+    }
+}
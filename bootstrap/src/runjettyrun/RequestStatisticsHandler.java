@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mortbay.jetty.Handler;
+import org.mortbay.jetty.HttpConnection;
+import org.mortbay.jetty.Request;
+import org.mortbay.jetty.Response;
+import org.mortbay.jetty.handler.HandlerCollection;
+import org.mortbay.jetty.handler.HandlerWrapper;
+import org.mortbay.jetty.servlet.PathMap;
+import org.mortbay.jetty.webapp.WebAppContext;
+
+/**
+ * Records the count, bytes and latency of the requests per servlet mapping of the web applications, and publishes
+ * them as {@link RequestStatisticsMBean}s in the runjettyrun domain, e.g. runjettyrun:type=RequestStatistics,
+ * context=/,pattern="*.jsp". The requests of all patterns are also counted in runjettyrun:type=RequestStatistics,
+ * name=total.
+ * <p>
+ * The web applications are looked up once, and again when the handlers of the wrapped collection are replaced, as a
+ * reload does. The MBeans are unregistered when the handler stops.
+ */
+public class RequestStatisticsHandler extends HandlerWrapper {
+
+    private static final String DOMAIN = "runjettyrun";
+
+    private final MBeanServer mBeanServer;
+
+    private final ConcurrentMap<String, RequestStatistics> statistics = new ConcurrentHashMap<String, RequestStatistics>();
+
+    private final RequestStatistics total = new RequestStatistics("*");
+
+    /** The names of the registered MBeans, unregistered on stop. */
+    private final Queue<ObjectName> registered = new ConcurrentLinkedQueue<ObjectName>();
+
+    /** The web applications below this handler, or null when they must be looked up. */
+    private volatile WebApps webApps;
+
+    public RequestStatisticsHandler(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        this.register(new ObjectName(DOMAIN + ":type=RequestStatistics,name=total"), this.total);
+        this.webApps = null;
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        try {
+            super.doStop();
+        } finally {
+            ObjectName name;
+            while ((name = this.registered.poll()) != null) {
+                try {
+                    if (this.mBeanServer.isRegistered(name)) {
+                        this.mBeanServer.unregisterMBean(name);
+                    }
+                } catch (JMException e) {
+                    System.err.println("RequestStatisticsHandler: can't unregister " + name + ": " + e);
+                }
+            }
+            this.statistics.clear();
+        }
+    }
+
+    @Override
+    public void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch)
+            throws IOException, ServletException {
+        if (dispatch != Handler.REQUEST) {
+            super.handle(target, request, response, dispatch);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            super.handle(target, request, response, dispatch);
+        } finally {
+            long micros = (System.nanoTime() - startTime) / 1000;
+            Request baseRequest = request instanceof Request ? (Request) request : HttpConnection.getCurrentConnection()
+                    .getRequest();
+            Response baseResponse = baseRequest.getConnection().getResponse();
+            int status = baseResponse.getStatus();
+            long in = baseRequest.getContentRead();
+            long out = baseResponse.getContentCount();
+
+            this.total.record(micros, status, in, out);
+            this.getStatistics(target).record(micros, status, in, out);
+        }
+        return;
+    }
+
+    /**
+     * @return the statistics of the servlet mapping of a request, registered as an MBean when first used
+     */
+    private RequestStatistics getStatistics(String target) {
+        String context = null;
+        String pattern = null;
+        Handler[] webApps = this.getWebApps();
+        for (int i = 0; i < webApps.length; i++) {
+            WebAppContext webApp = (WebAppContext) webApps[i];
+            String contextPath = webApp.getContextPath();
+            String pathInContext;
+            if ("/".equals(contextPath)) {
+                pathInContext = target;
+            } else if (target.equals(contextPath) || target.startsWith(contextPath + "/")) {
+                pathInContext = target.substring(contextPath.length());
+            } else {
+                continue;
+            }
+            if (context != null && context.length() > contextPath.length()) {
+                continue;
+            }
+            context = contextPath;
+            PathMap.Entry entry = webApp.getServletHandler() != null ? webApp.getServletHandler().getHolderEntry(
+                    pathInContext) : null;
+            pattern = entry != null ? (String) entry.getKey() : "(unmapped)";
+        }
+        if (context == null) {
+            context = "(none)";
+            pattern = "(unmapped)";
+        }
+
+        String key = context + " " + pattern;
+        RequestStatistics result = this.statistics.get(key);
+        if (result == null) {
+            RequestStatistics created = new RequestStatistics(pattern);
+            result = this.statistics.putIfAbsent(key, created);
+            if (result == null) {
+                result = created;
+                try {
+                    this.register(new ObjectName(DOMAIN + ":type=RequestStatistics,context=" + ObjectName.quote(context)
+                            + ",pattern=" + ObjectName.quote(pattern)), created);
+                } catch (JMException e) {
+                    System.err.println("RequestStatisticsHandler: can't register the statistics of " + key + ": " + e);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Handler[] getWebApps() {
+        Handler handler = this.getHandler();
+        // the collection replaces its array whenever a handler is added or removed
+        Object key = handler instanceof HandlerCollection ? ((HandlerCollection) handler).getHandlers() : handler;
+        WebApps webApps = this.webApps;
+        if (webApps == null || webApps.key != key) {
+            webApps = new WebApps(key, this.getChildHandlersByClass(WebAppContext.class));
+            this.webApps = webApps;
+        }
+        return webApps.contexts;
+    }
+
+    private void register(ObjectName name, RequestStatistics mBean) throws JMException {
+        if (this.mBeanServer.isRegistered(name)) {
+            this.mBeanServer.unregisterMBean(name);
+        }
+        this.mBeanServer.registerMBean(mBean, name);
+        this.registered.add(name);
+        return;
+    }
+
+    /**
+     * The web applications, and the handlers they were looked up for.
+     */
+    private static class WebApps {
+
+        final Object key;
+
+        final Handler[] contexts;
+
+        WebApps(Object key, Handler[] contexts) {
+            this.key = key;
+            this.contexts = contexts;
+        }
+    }
+}
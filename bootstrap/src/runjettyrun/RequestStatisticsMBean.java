@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+/**
+ * The statistics of the requests to one URL pattern, as published over JMX. Latencies are in milliseconds.
+ */
+public interface RequestStatisticsMBean {
+
+    String getPattern();
+
+    long getRequests();
+
+    /** Responses with a status of 500 or more. */
+    long getErrors();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    /** Requests per second since the statistics were started or reset. */
+    double getRequestsPerSecond();
+
+    double getLatencyMean();
+
+    double getLatency50();
+
+    double getLatency95();
+
+    double getLatency99();
+
+    double getLatencyMax();
+
+    void reset();
+}
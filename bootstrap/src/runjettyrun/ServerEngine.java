@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+/**
+ * The server that runs the web applications of a launch: the bundled Jetty 6 ({@link Jetty6Engine}), or the engine
+ * named with -Drjrengine. The bootstrap hands over to it once the settings of the launch are in place (standby JVM,
+ * launch descriptor), and the engine reads the -Drjr... settings it supports from the system properties, as the
+ * bootstrap does.
+ * <p>
+ * Any engine but Jetty 6 has its server on the class path instead of the Jetty 6 jars, so it must not use the
+ * bootstrap's classes that depend on them. This interface and {@link StartupTimeline} don't.
+ */
+public interface ServerEngine {
+
+    /**
+     * Starts the server and the web applications, and returns once the server has stopped.
+     * 
+     * @param timeline the startup timeline to mark, or null if it is not enabled
+     */
+    void run(StartupTimeline timeline) throws Exception;
+}
@@ -0,0 +1,378 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The jars that every web application has on its class path, with the same content (even when at another path), so
+ * that they can be loaded once by a common parent of the {@link ProjectClassLoader}s rather than once per web
+ * application. Only jars shared by all the web applications qualify: a jar in the parent is visible to every one of
+ * them.
+ * <p>
+ * A class loaded by the parent only sees the classes of the parent, and its static state is common to all the web
+ * applications. So a jar is only shared when none of its classes refers to a class of a jar that is not shared (an
+ * optional dependency that only some web applications have, say); the references are read from the constant pools of
+ * the class files. References to the classes of directories, and through reflection, are not checked.
+ */
+public class SharedLibraries {
+
+    /** The shared jars, in the class path order of the first web application. */
+    private final List<File> jars = new ArrayList<File>();
+
+    /** All the paths of the shared jars, in any web application. */
+    private final Set<File> paths = new HashSet<File>();
+
+    private ClassLoader classLoader;
+
+    /**
+     * Finds the shared jars. Only the jars whose size is found in every class path are hashed.
+     * 
+     * @param classPaths the class paths of the web applications
+     * @throws IOException if a jar can't be read
+     */
+    public SharedLibraries(List<List<File>> classPaths) throws IOException {
+        if (classPaths.size() < 2) {
+            return;
+        }
+
+        // sizes found in every class path
+        Set<Long> commonSizes = null;
+        for (List<File> classPath : classPaths) {
+            Set<Long> sizes = new HashSet<Long>();
+            for (File file : classPath) {
+                if (file.isFile()) {
+                    sizes.add(file.length());
+                }
+            }
+            if (commonSizes == null) {
+                commonSizes = sizes;
+            } else {
+                commonSizes.retainAll(sizes);
+            }
+        }
+
+        // hashes found in every class path, and the paths having them
+        Map<String, List<File>> pathsByHash = new HashMap<String, List<File>>();
+        Set<String> commonHashes = null;
+        List<Map<String, File>> hashesByClassPath = new ArrayList<Map<String, File>>();
+        for (List<File> classPath : classPaths) {
+            Map<String, File> hashes = new LinkedHashMap<String, File>();
+            for (File file : classPath) {
+                if (file.isFile() && commonSizes.contains(file.length())) {
+                    String hash = hash(file);
+                    hashes.put(hash, file);
+                    List<File> files = pathsByHash.get(hash);
+                    if (files == null) {
+                        files = new ArrayList<File>();
+                        pathsByHash.put(hash, files);
+                    }
+                    files.add(file.getAbsoluteFile());
+                }
+            }
+            hashesByClassPath.add(hashes);
+            if (commonHashes == null) {
+                commonHashes = new HashSet<String>(hashes.keySet());
+            } else {
+                commonHashes.retainAll(hashes.keySet());
+            }
+        }
+
+        Map<File, List<File>> pathsByJar = new HashMap<File, List<File>>();
+        for (Map.Entry<String, File> entry : hashesByClassPath.get(0).entrySet()) {
+            if (commonHashes.contains(entry.getKey())) {
+                this.jars.add(entry.getValue());
+                this.paths.addAll(pathsByHash.get(entry.getKey()));
+                pathsByJar.put(entry.getValue(), pathsByHash.get(entry.getKey()));
+            }
+        }
+
+        if (!this.jars.isEmpty() && this.removeDependentJars(classPaths)) {
+            this.paths.clear();
+            for (File jar : this.jars) {
+                this.paths.addAll(pathsByJar.get(jar));
+            }
+        }
+    }
+
+    /**
+     * @return the shared jars
+     */
+    public List<File> getJars() {
+        return this.jars;
+    }
+
+    /**
+     * @return the total size of the shared jars, in bytes
+     */
+    public long getSize() {
+        long size = 0;
+        for (File jar : this.jars) {
+            size += jar.length();
+        }
+        return size;
+    }
+
+    /**
+     * @param parent the parent of the returned class loader
+     * @return the class loader of the shared jars, created on the first call
+     */
+    public synchronized ClassLoader getClassLoader(ClassLoader parent) throws IOException {
+        if (this.classLoader == null) {
+            URL[] urls = new URL[this.jars.size()];
+            for (int i = 0; i < urls.length; i++) {
+                urls[i] = this.jars.get(i).toURI().toURL();
+            }
+            this.classLoader = new URLClassLoader(urls, parent);
+        }
+        return this.classLoader;
+    }
+
+    /**
+     * @param classPath a class path
+     * @return the class path without the shared jars
+     */
+    public String removeFrom(List<File> classPath) {
+        StringBuilder sb = new StringBuilder();
+        for (File file : classPath) {
+            if (this.paths.contains(file.getAbsoluteFile())) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparatorChar);
+            }
+            sb.append(file.getPath());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Removes the shared jars that refer to classes of the jars that are not shared, until none does.
+     * 
+     * @return true if a jar was removed
+     */
+    private boolean removeDependentJars(List<List<File>> classPaths) throws IOException {
+        // the classes of the jars not shared, by internal name
+        Map<String, File> unshared = new HashMap<String, File>();
+        for (List<File> classPath : classPaths) {
+            for (File file : classPath) {
+                if (file.isFile() && !this.paths.contains(file.getAbsoluteFile())) {
+                    for (String name : getClassNames(file)) {
+                        unshared.put(name, file);
+                    }
+                }
+            }
+        }
+
+        boolean removed = false;
+        Map<File, Set<String>> references = new HashMap<File, Set<String>>();
+        for (Iterator<File> i = this.jars.iterator(); i.hasNext();) {
+            File jar = i.next();
+            try {
+                references.put(jar, getReferences(jar));
+            } catch (IOException e) {
+                System.err.println("SharedLibraries: " + jar.getName() + " not shared, its classes can't be read: " + e);
+                i.remove();
+                for (String own : getClassNames(jar)) {
+                    unshared.put(own, jar);
+                }
+                removed = true;
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Iterator<File> i = this.jars.iterator(); i.hasNext();) {
+                File jar = i.next();
+                for (String name : references.get(jar)) {
+                    File other = unshared.get(name);
+                    if (other != null) {
+                        System.err.println("SharedLibraries: " + jar.getName() + " not shared, it uses "
+                                + name.replace('/', '.') + " of " + other.getName());
+                        i.remove();
+                        for (String own : getClassNames(jar)) {
+                            unshared.put(own, jar);
+                        }
+                        removed = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the internal names of the classes of a jar
+     */
+    private static Set<String> getClassNames(File jar) throws IOException {
+        Set<String> names = new HashSet<String>();
+        JarFile jarFile = new JarFile(jar);
+        try {
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                    names.add(name.substring(0, name.length() - ".class".length()));
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+        return names;
+    }
+
+    /**
+     * @return the internal names of the classes that the classes of a jar refer to, other than their own
+     */
+    private static Set<String> getReferences(File jar) throws IOException {
+        Set<String> references = new HashSet<String>();
+        JarFile jarFile = new JarFile(jar);
+        try {
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+                JarEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/")) {
+                    InputStream in = jarFile.getInputStream(entry);
+                    try {
+                        addReferences(in, references);
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+        references.removeAll(getClassNames(jar));
+        return references;
+    }
+
+    /**
+     * Adds the classes named in the constant pool of a class file: the class entries, and the types in the
+     * descriptors and signatures.
+     */
+    private static void addReferences(InputStream stream, Set<String> references) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != 0xCAFEBABE) {
+            return;
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+        String[] strings = new String[count];
+        List<Integer> classes = new ArrayList<Integer>();
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case 1: // Utf8
+                strings[i] = in.readUTF();
+                break;
+            case 7: // Class
+                classes.add(in.readUnsignedShort());
+                break;
+            case 8: // String
+            case 16: // MethodType
+            case 19: // Module
+            case 20: // Package
+                in.readUnsignedShort();
+                break;
+            case 15: // MethodHandle
+                in.readUnsignedByte();
+                in.readUnsignedShort();
+                break;
+            case 3: // Integer
+            case 4: // Float
+            case 9: // Fieldref
+            case 10: // Methodref
+            case 11: // InterfaceMethodref
+            case 12: // NameAndType
+            case 17: // Dynamic
+            case 18: // InvokeDynamic
+                in.readInt();
+                break;
+            case 5: // Long
+            case 6: // Double
+                in.readLong();
+                i++;
+                break;
+            default:
+                throw new IOException("unknown constant pool tag " + tag);
+            }
+        }
+
+        for (Integer index : classes) {
+            String name = strings[index];
+            if (name != null && !name.startsWith("[")) {
+                references.add(name);
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            String string = strings[i];
+            // array class entries, descriptors and signatures: Lname; or Lname<...>;
+            for (int start = string != null ? string.indexOf('L') : -1; start != -1; start = string.indexOf('L',
+                    start + 1)) {
+                int end = start + 1;
+                while (end < string.length() && string.charAt(end) != ';' && string.charAt(end) != '<') {
+                    end++;
+                }
+                if (end < string.length() && end > start + 1) {
+                    references.add(string.substring(start + 1, end));
+                }
+            }
+        }
+        return;
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Parks a JVM started by the plug-in ahead of a launch. The classes of the jars on the class path (Jetty, Jasper, the
+ * bootstrap) are loaded and the platform MBean server is created, then the JVM connects back to the plug-in and waits
+ * for the settings of the next launch, which it takes as system properties before Jetty is set up as usual.
+ */
+public class Standby {
+
+    /**
+     * The packages whose classes a standby JVM initializes ahead: those of the bundled Jetty 6, its servlet and JSP
+     * implementation, and the bootstrap, whose static set up doesn't depend on the launch. The other classes of the
+     * class path (the project's, another engine's) are only loaded: one that fails to initialize outside of its web
+     * application would stay failed, and the launch would get a NoClassDefFoundError for it.
+     */
+    private static final String[] INITIALIZED_PACKAGES = { "org.mortbay.", "org.apache.jasper.", "javax.servlet.",
+            "runjettyrun." };
+
+    private Standby() {
+    }
+
+    /**
+     * Returns once the plug-in has handed over the settings of a launch. Exits the JVM if the plug-in discards it
+     * instead.
+     *
+     * @param port the local port the plug-in listens on
+     * @param token identifies this JVM to the plug-in
+     */
+    public static void park(int port, String token) throws IOException {
+        long startTime = System.currentTimeMillis();
+        int classes = preload(true);
+        ManagementFactory.getPlatformMBeanServer();
+        System.err.println("Standby: " + classes + " classes loaded in " + (System.currentTimeMillis() - startTime)
+                + " ms, waiting for a launch");
+
+        Properties settings = new Properties();
+        Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write((token + "\n").getBytes("ISO-8859-1"));
+            out.flush();
+            settings.load(socket.getInputStream());
+        } finally {
+            socket.close();
+        }
+
+        if (settings.isEmpty()) {
+            // discarded, or the plug-in went away
+            System.exit(0);
+        }
+        for (String name : settings.stringPropertyNames()) {
+            System.setProperty(name, settings.getProperty(name));
+        }
+        return;
+    }
+
+    /**
+     * Loads the classes of the jars on the class path. For a standby JVM, those of {@link #INITIALIZED_PACKAGES} are
+     * initialized as well, which is what takes the time (Jetty's and Jasper's static set up); the system properties it
+     * may read are those of the launch, except for the -Drjr... settings, which only the bootstrap reads.
+     *
+     * @return the number of classes loaded
+     */
+    static int preload(boolean initialize) {
+        ClassLoader loader = Standby.class.getClassLoader();
+        int count = 0;
+        StringTokenizer tokenizer = new StringTokenizer(System.getProperty("java.class.path", ""), File.pathSeparator);
+        while (tokenizer.hasMoreTokens()) {
+            File file = new File(tokenizer.nextToken());
+            if (!file.isFile()) {
+                continue;
+            }
+            try {
+                JarFile jar = new JarFile(file);
+                try {
+                    for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+                        String name = e.nextElement().getName();
+                        if (!name.endsWith(".class")) {
+                            continue;
+                        }
+                        String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                        try {
+                            Class.forName(className, initialize && isInitializedAhead(className), loader);
+                            count++;
+                        } catch (ClassNotFoundException ex) {
+                            // not loadable; if the launch needs it, it will tell
+                        } catch (ExceptionInInitializerError ex) {
+                            System.err.println("Standby: " + className + " failed to initialize: " + ex.getCause());
+                        } catch (LinkageError ex) {
+                            // depends on something that is not on the class path (Ant tasks and the like)
+                        }
+                    }
+                } finally {
+                    jar.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Standby: can't read " + file + ": " + e);
+            }
+        }
+        return count;
+    }
+
+    private static boolean isInitializedAhead(String className) {
+        for (int i = 0; i < INITIALIZED_PACKAGES.length; i++) {
+            if (className.startsWith(INITIALIZED_PACKAGES[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
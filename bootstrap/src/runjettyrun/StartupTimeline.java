@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * The end times of the phases of a launch, from the plug-in's launch delegate to the first request served. The
+ * plug-in passes its own phases in -Drjrlaunchtimeline, as a comma separated list of phase=millis.
+ */
+public class StartupTimeline {
+
+    private final List<String> phases = new ArrayList<String>();
+
+    private final List<Long> times = new ArrayList<Long>();
+
+    /** The file the timeline is written to, or null. */
+    private final File file;
+
+    /**
+     * @param launchTimeline the phases of the plug-in, or null
+     * @param file the file to write the timeline to, or null
+     */
+    public StartupTimeline(String launchTimeline, File file) {
+        this.file = file;
+        if (launchTimeline != null) {
+            StringTokenizer tokenizer = new StringTokenizer(launchTimeline, ",");
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                int equals = token.lastIndexOf('=');
+                if (equals > 0) {
+                    this.mark(token.substring(0, equals), Long.parseLong(token.substring(equals + 1)));
+                }
+            }
+        }
+        this.mark("JVM started", ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    /**
+     * Records the end of a phase.
+     */
+    public void mark(String phase) {
+        this.mark(phase, System.currentTimeMillis());
+        return;
+    }
+
+    public synchronized void mark(String phase, long time) {
+        this.phases.add(phase);
+        this.times.add(time);
+        return;
+    }
+
+    /**
+     * Prints the timeline to the console and, when configured, to the file.
+     */
+    public synchronized void print() {
+        String timeline = this.toString();
+        System.err.print(timeline);
+        if (this.file != null) {
+            try {
+                PrintStream out = new PrintStream(new FileOutputStream(this.file));
+                try {
+                    out.print(timeline);
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                System.err.println("StartupTimeline: can't write " + this.file + ": " + e);
+            }
+        }
+        return;
+    }
+
+    @Override
+    public synchronized String toString() {
+        String newLine = System.getProperty("line.separator");
+        StringBuilder sb = new StringBuilder("Startup timeline (phase, duration, elapsed):").append(newLine);
+        long first = this.times.isEmpty() ? 0 : this.times.get(0);
+        long previous = first;
+        for (int i = 0; i < this.phases.size(); i++) {
+            long time = this.times.get(i);
+            sb.append(String.format("  %-32s %7d ms %7d ms", this.phases.get(i), time - previous, time - first));
+            sb.append(newLine);
+            previous = time;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mortbay.jetty.AbstractConnector;
+import org.mortbay.jetty.Connector;
+import org.mortbay.jetty.HttpConnection;
+import org.mortbay.jetty.Request;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.handler.AbstractHandler;
+import org.mortbay.jetty.handler.ContextHandler;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.thread.QueuedThreadPool;
+import org.mortbay.thread.ThreadPool;
+
+/**
+ * Serves the connection and thread pool statistics of the server as JSON at /__rjr/stats. It runs a server of its own
+ * on a separate port of the loopback interface, with its own threads, so that the statistics can still be read while
+ * the web application's thread pool is exhausted by a load test.
+ */
+public class StatisticsServer extends AbstractHandler {
+
+    private final Server server;
+
+    private final Server statisticsServer = new Server();
+
+    /**
+     * @param server the server to report on
+     * @param port the port to serve the statistics on
+     */
+    public StatisticsServer(Server server, int port) {
+        this.server = server;
+
+        SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setHost("127.0.0.1");
+        connector.setPort(port);
+        connector.setAcceptors(1);
+        this.statisticsServer.addConnector(connector);
+
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setMinThreads(1);
+        threadPool.setMaxThreads(4);
+        threadPool.setName("rjrstats");
+        this.statisticsServer.setThreadPool(threadPool);
+
+        ContextHandler context = new ContextHandler("/__rjr");
+        context.setHandler(this);
+        this.statisticsServer.setHandler(context);
+    }
+
+    public void startServer() throws Exception {
+        try {
+            this.statisticsServer.start();
+        } catch (Exception e) {
+            // don't leave the thread pool running when the port can't be bound
+            this.statisticsServer.stop();
+            throw e;
+        }
+        return;
+    }
+
+    public void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch)
+            throws IOException, ServletException {
+        if (!"/stats".equals(target)) {
+            return;
+        }
+        Request baseRequest = request instanceof Request ? (Request) request : HttpConnection.getCurrentConnection()
+                .getRequest();
+        baseRequest.setHandled(true);
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        PrintWriter out = response.getWriter();
+        out.print(this.toJson());
+        out.flush();
+        return;
+    }
+
+    /**
+     * @return the statistics of the thread pool and of the connectors
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        appendField(sb, "uptime", ManagementFactory.getRuntimeMXBean().getUptime(), false);
+
+        sb.append(",\"threadPool\":{");
+        ThreadPool threadPool = this.server.getThreadPool();
+        appendField(sb, "threads", threadPool.getThreads(), false);
+        appendField(sb, "idleThreads", threadPool.getIdleThreads(), true);
+        appendField(sb, "lowOnThreads", threadPool.isLowOnThreads(), true);
+        if (threadPool instanceof QueuedThreadPool) {
+            QueuedThreadPool queuedThreadPool = (QueuedThreadPool) threadPool;
+            appendField(sb, "minThreads", queuedThreadPool.getMinThreads(), true);
+            appendField(sb, "maxThreads", queuedThreadPool.getMaxThreads(), true);
+            appendField(sb, "queueSize", queuedThreadPool.getQueueSize(), true);
+            appendField(sb, "maxQueued", queuedThreadPool.getMaxQueued(), true);
+        }
+        if (threadPool instanceof BoundedQueuedThreadPool) {
+            appendField(sb, "queueLimit", ((BoundedQueuedThreadPool) threadPool).getQueueLimit(), true);
+        }
+        sb.append('}');
+
+        sb.append(",\"connectors\":[");
+        Connector[] connectors = this.server.getConnectors();
+        for (int i = 0; connectors != null && i < connectors.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('{');
+            appendField(sb, "name", connectors[i].getName(), false);
+            appendField(sb, "port", connectors[i].getPort(), true);
+            if (connectors[i] instanceof AbstractConnector) {
+                AbstractConnector connector = (AbstractConnector) connectors[i];
+                appendField(sb, "statsOn", connector.getStatsOn(), true);
+                appendField(sb, "statsOnMs", connector.getStatsOnMs(), true);
+                appendField(sb, "requests", connector.getRequests(), true);
+                appendField(sb, "connections", connector.getConnections(), true);
+                appendField(sb, "connectionsOpen", connector.getConnectionsOpen(), true);
+                appendField(sb, "connectionsOpenMax", connector.getConnectionsOpenMax(), true);
+                appendField(sb, "connectionsDurationAve", connector.getConnectionsDurationAve(), true);
+                appendField(sb, "connectionsDurationMax", connector.getConnectionsDurationMax(), true);
+                appendField(sb, "connectionsRequestsAve", connector.getConnectionsRequestsAve(), true);
+                appendField(sb, "connectionsRequestsMax", connector.getConnectionsRequestsMax(), true);
+            }
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static void appendField(StringBuilder sb, String name, Object value, boolean comma) {
+        if (comma) {
+            sb.append(',');
+        }
+        sb.append('"').append(name).append("\":");
+        if (value instanceof String) {
+            sb.append('"');
+            String s = (String) value;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        } else {
+            sb.append(value);
+        }
+        return;
+    }
+}
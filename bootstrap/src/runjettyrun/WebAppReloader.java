@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.mortbay.jetty.handler.HandlerCollection;
+import org.mortbay.jetty.webapp.WebAppContext;
+
+/**
+ * Reloads the web application in the running server when its classes change, instead of restarting the JVM. The
+ * context is stopped and replaced by a new one, with a new {@link ProjectClassLoader}; the connectors, the thread
+ * pool and the JIT-compiled Jetty code are kept. Changes in the web application directory outside WEB-INF (JSPs,
+ * static files) are served as they are and don't cause a reload.
+ */
+public class WebAppReloader implements ChangeDetector.Listener {
+
+    private final HandlerCollection handlers;
+
+    /** Creates the replacement context, not started. */
+    private final Callable<WebAppContext> factory;
+
+    /** The web application directory, watched for changes under WEB-INF. */
+    private final File webAppDir;
+
+    private final ChangeDetector detector;
+
+    /** The context in the collection, which the next reload replaces; it may have failed to start. */
+    private WebAppContext current;
+
+    /**
+     * @param handlers the collection holding the context
+     * @param current the context to replace
+     * @param factory creates the replacement context
+     * @param webAppDir the web application directory
+     * @param classPath the class path entries to watch
+     * @param quietPeriod the milliseconds without changes after which the web application is reloaded
+     * @throws IOException if the files can't be watched
+     */
+    public WebAppReloader(HandlerCollection handlers, WebAppContext current, Callable<WebAppContext> factory,
+            File webAppDir, List<File> classPath, long quietPeriod) throws IOException {
+        this.handlers = handlers;
+        this.current = current;
+        this.factory = factory;
+        this.webAppDir = webAppDir.getAbsoluteFile();
+        classPath.add(0, this.webAppDir);
+        this.detector = new ChangeDetector(classPath, quietPeriod, this);
+    }
+
+    public void start() {
+        this.detector.start();
+        System.err.println("WebAppReloader: watching " + this.detector.getDirectoryCount() + " directories");
+        return;
+    }
+
+    public void stop() {
+        this.detector.close();
+        return;
+    }
+
+    public void filesChanged(Set<File> changed) throws Exception {
+        for (File file : changed) {
+            if (this.needsReload(file)) {
+                this.reload(changed.size());
+                return;
+            }
+        }
+        return;
+    }
+
+    /**
+     * @return false for the files of the web application directory that Jetty serves or compiles itself
+     */
+    private boolean needsReload(File file) {
+        String path = file.getPath();
+        String root = this.webAppDir.getPath();
+        if (!path.startsWith(root + File.separator)) {
+            return true;
+        }
+        String relative = path.substring(root.length() + 1);
+        return relative.equals("WEB-INF") || relative.startsWith("WEB-INF" + File.separator);
+    }
+
+    /**
+     * Replaces the context by a new one. The old class loader is closed, so that its jars are released.
+     * 
+     * @param changes the number of changed files, for the log
+     */
+    public synchronized void reload(int changes) throws Exception {
+        long startTime = System.currentTimeMillis();
+
+        WebAppContext old = this.current;
+        this.discard(old);
+
+        WebAppContext fresh = this.factory.call();
+        this.handlers.addHandler(fresh);
+        // set before starting, so that the next reload replaces the context even when it fails to start
+        this.current = fresh;
+        try {
+            fresh.start();
+        } catch (Exception e) {
+            // leave nothing half started on the context path; the next change of the classes tries again
+            this.discard(fresh);
+            throw e;
+        }
+
+        System.err.println("WebAppReloader: reloaded " + fresh.getContextPath() + " in "
+                + (System.currentTimeMillis() - startTime) + " ms (" + changes + " file(s) changed)");
+        return;
+    }
+
+    /**
+     * Stops a context and removes it from the collection. Its class loader is closed, so that its jars are released.
+     */
+    private void discard(WebAppContext context) throws Exception {
+        try {
+            context.stop();
+        } finally {
+            this.handlers.removeHandler(context);
+            if (context.getClassLoader() instanceof ProjectClassLoader) {
+                ((ProjectClassLoader) context.getClassLoader()).close();
+            }
+        }
+        return;
+    }
+}
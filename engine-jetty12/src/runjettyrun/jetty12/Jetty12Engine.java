@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun.jetty12;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import org.eclipse.jetty.ee8.webapp.WebAppContext;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import runjettyrun.ServerEngine;
+import runjettyrun.StartupTimeline;
+
+/**
+ * Runs the web applications on Jetty 12, for the connection model of current servers: HTTP/2 without TLS (h2c) next
+ * to HTTP/1.1 on the HTTP port with -Drjrhttp2, and the requests handled on virtual threads with -Drjrvirtualthreads
+ * (Java 21 or later). The web applications are deployed in the ee8 environment, which keeps the javax.servlet API of
+ * the applications run on Jetty 6.
+ * <p>
+ * The Jetty 12 jars are not bundled: the plug-in puts those of the directory configured in the launch on the class
+ * path, instead of the Jetty 6 ones. Jetty 12 needs Java 17 or later.
+ * <p>
+ * The settings that tune Jetty 6 or need its classes (the project class loader, reloading, JSP precompilation,
+ * parallel servlet initialization, shared libraries, the statistics) are ignored, with a warning.
+ */
+public class Jetty12Engine implements ServerEngine {
+
+    /** The settings this engine ignores. */
+    private static final String[] UNSUPPORTED = { "rjrsslnio", "rjrsslacceptors", "rjrsslrequestbuffersize",
+            "rjrsslresponsebuffersize", "rjrprecompilejsps", "rjrparallelindex", "rjrparallelinit", "rjrsharedlibs",
+            "rjrreload", "rjrrequeststats", "rjrstatsport", "rjrqueuelimit", "rjrlowresourcesconnections",
+            "rjrlowresourcemaxidletime", "rjrrequestbuffersize", "rjrgzipbuffersize" };
+
+    public Jetty12Engine() {
+    }
+
+    public void run(StartupTimeline timeline) throws Exception {
+
+        String context = System.getProperty("rjrcontext");
+        String webAppDir = System.getProperty("rjrwebapp");
+        Integer port = Integer.getInteger("rjrport");
+        Integer sslport = Integer.getInteger("rjrsslport");
+        String webAppClassPath = System.getProperty("rjrclasspath");
+        String workDir = System.getProperty("rjrworkdir");
+        int webAppCount = Integer.getInteger("rjrwebappcount", 0);
+        String keystore = System.getProperty("rjrkeystore");
+        String password = System.getProperty("rjrpassword");
+        String keyPassword = System.getProperty("rjrkeypassword");
+        Integer minThreads = Integer.getInteger("rjrminthreads");
+        Integer maxThreads = Integer.getInteger("rjrmaxthreads");
+        Integer threadIdleTime = Integer.getInteger("rjrthreadidletime");
+        boolean http2 = Boolean.getBoolean("rjrhttp2");
+        boolean virtualThreads = Boolean.getBoolean("rjrvirtualthreads");
+
+        if (context == null) {
+            throw new IllegalStateException("you need to provide argument -Drjrcontext");
+        }
+        if (webAppDir == null) {
+            throw new IllegalStateException("you need to provide argument -Drjrwebapp");
+        }
+        if (port == null && sslport == null) {
+            throw new IllegalStateException("you need to provide argument -Drjrport and/or -Drjrsslport");
+        }
+        if (minThreads != null && maxThreads != null && minThreads > maxThreads) {
+            throw new IllegalStateException("-Drjrminthreads must not be greater than -Drjrmaxthreads");
+        }
+        for (int i = 0; i < UNSUPPORTED.length; i++) {
+            if (System.getProperty(UNSUPPORTED[i]) != null) {
+                System.err.println("Jetty12Engine: -D" + UNSUPPORTED[i] + " is only supported on Jetty 6, ignored");
+            }
+        }
+
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        if (maxThreads != null) {
+            threadPool.setMaxThreads(maxThreads);
+        }
+        if (minThreads != null) {
+            threadPool.setMinThreads(minThreads);
+        }
+        if (threadIdleTime != null) {
+            threadPool.setIdleTimeout(threadIdleTime);
+        }
+        if (virtualThreads) {
+            // the pool still runs the selectors and acceptors; the requests are handled on virtual threads
+            if (VirtualThreads.areSupported()) {
+                threadPool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+            } else {
+                System.err.println("Jetty12Engine: virtual threads need Java 21 or later, -Drjrvirtualthreads ignored");
+            }
+        }
+        Server server = new Server(threadPool);
+
+        HttpConfiguration httpConfig = new HttpConfiguration();
+        Integer responseBufferSize = Integer.getInteger("rjrresponsebuffersize");
+        if (responseBufferSize != null) {
+            httpConfig.setOutputBufferSize(responseBufferSize);
+        }
+        Integer headerBufferSize = Integer.getInteger("rjrheaderbuffersize");
+        if (headerBufferSize != null) {
+            httpConfig.setRequestHeaderSize(headerBufferSize);
+            httpConfig.setResponseHeaderSize(headerBufferSize);
+        }
+        if (sslport != null) {
+            httpConfig.setSecurePort(sslport);
+        }
+
+        if (port != null) {
+            List<ConnectionFactory> factories = new ArrayList<ConnectionFactory>();
+            factories.add(new HttpConnectionFactory(httpConfig));
+            if (http2) {
+                // h2c, by prior knowledge or by upgrade from HTTP/1.1
+                factories.add(new HTTP2CServerConnectionFactory(httpConfig));
+            }
+            ServerConnector connector = new ServerConnector(server, Integer.getInteger("rjracceptors", -1), -1,
+                    factories.toArray(new ConnectionFactory[factories.size()]));
+            connector.setPort(port);
+            configureConnector(connector, "rjr");
+            server.addConnector(connector);
+        }
+
+        if (sslport != null) {
+            if (keystore == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrkeystore with -Drjrsslport");
+            }
+            if (password == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrpassword with -Drjrsslport");
+            }
+            if (keyPassword == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrkeypassword with -Drjrsslport");
+            }
+
+            SslContextFactory.Server sslContextFactory = new SslContextFactory.Server();
+            sslContextFactory.setKeyStorePath(keystore);
+            sslContextFactory.setKeyStorePassword(password);
+            sslContextFactory.setKeyManagerPassword(keyPassword);
+
+            HttpConfiguration httpsConfig = new HttpConfiguration(httpConfig);
+            httpsConfig.addCustomizer(new SecureRequestCustomizer());
+            ServerConnector sslConnector = new ServerConnector(server, new SslConnectionFactory(sslContextFactory,
+                    HttpVersion.HTTP_1_1.asString()), new HttpConnectionFactory(httpsConfig));
+            sslConnector.setIdleTimeout(30000);
+            sslConnector.setPort(sslport);
+            configureConnector(sslConnector, "rjrssl");
+            server.addConnector(sslConnector);
+        }
+
+        if (timeline != null) {
+            timeline.mark("connectors configured");
+        }
+
+        ContextHandlerCollection contexts = new ContextHandlerCollection();
+        Handler handler = contexts;
+        if (Boolean.getBoolean("rjrgzip")) {
+            GzipHandler gzipHandler = new GzipHandler();
+            String mimeTypes = System.getProperty("rjrgzipmimetypes");
+            if (mimeTypes != null) {
+                gzipHandler.setIncludedMimeTypes(mimeTypes.split(","));
+            }
+            Integer minGzipSize = Integer.getInteger("rjrgzipminsize");
+            if (minGzipSize != null) {
+                gzipHandler.setMinGzipSize(minGzipSize);
+            }
+            gzipHandler.setHandler(handler);
+            handler = gzipHandler;
+        }
+        if (timeline != null) {
+            FirstRequestHandler firstRequestHandler = new FirstRequestHandler(timeline);
+            firstRequestHandler.setHandler(handler);
+            handler = firstRequestHandler;
+        }
+        server.setHandler(handler);
+
+        contexts.addHandler(createWebAppContext(context, webAppDir, webAppClassPath, workDir).getCoreContextHandler());
+        for (int i = 1; i <= webAppCount; i++) {
+            String extraContext = System.getProperty("rjrcontext." + i);
+            String extraWebAppDir = System.getProperty("rjrwebapp." + i);
+            if (extraContext == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrcontext." + i + " with -Drjrwebappcount");
+            }
+            if (extraWebAppDir == null) {
+                throw new IllegalStateException("you need to provide argument -Drjrwebapp." + i + " with -Drjrwebappcount");
+            }
+            // each web application needs a work directory of its own
+            String extraWorkDir = workDir != null ? new File(workDir, "webapp-" + i).getPath() : null;
+            contexts.addHandler(createWebAppContext(extraContext, extraWebAppDir, System.getProperty("rjrclasspath." + i),
+                    extraWorkDir).getCoreContextHandler());
+        }
+        if (timeline != null) {
+            timeline.mark(webAppCount == 0 ? "web app context created" : (webAppCount + 1) + " web app contexts created");
+        }
+
+        server.start();
+        System.err.println("Jetty12Engine: started " + Server.getVersion() + (http2 && port != null ? ", h2c on port "
+                + port : "") + (threadPool.getVirtualThreadsExecutor() != null ? ", on virtual threads" : ""));
+
+        if (timeline != null) {
+            timeline.mark("server started");
+            timeline.print();
+        }
+
+        server.join();
+    }
+
+    /**
+     * Creates the context of a web application. Its class path is added to the web application's class loader, ahead
+     * of WEB-INF/classes and WEB-INF/lib.
+     * 
+     * @param webAppClassPath the class path of the web application, or null
+     * @param workDir the work directory of the context, or null for a temporary one
+     * @return the context, not started
+     */
+    private static WebAppContext createWebAppContext(String context, String webAppDir, String webAppClassPath,
+            String workDir) throws IOException {
+        WebAppContext web = new WebAppContext();
+        web.setContextPath(context);
+        web.setWar(webAppDir);
+
+        if (workDir != null) {
+            File tempDir = new File(workDir);
+            tempDir.mkdirs();
+            // kept when the context stops, so that the JSP classes compiled into it are still there at the next launch
+            web.setTempDirectory(tempDir);
+            web.setPersistTempDirectory(true);
+        }
+
+        // see the comment on issue 7 in the Jetty 6 engine
+        String fileMappedBuffer = System.getProperty("rjrfilemappedbuffer");
+        if (fileMappedBuffer == null) {
+            fileMappedBuffer = String.valueOf(!System.getProperty("os.name", "").startsWith("Windows"));
+        }
+        web.setInitParameter("org.eclipse.jetty.servlet.Default.useFileMappedBuffer", fileMappedBuffer);
+        putInitParam(web, "org.eclipse.jetty.servlet.Default.maxCacheSize", "rjrmaxcachesize");
+        putInitParam(web, "org.eclipse.jetty.servlet.Default.maxCachedFileSize", "rjrmaxcachedfilesize");
+        putInitParam(web, "org.eclipse.jetty.servlet.Default.maxCachedFiles", "rjrmaxcachedfiles");
+
+        if (webAppClassPath != null) {
+            // Jetty separates the entries of the extra class path with commas or semicolons
+            StringBuilder sb = new StringBuilder();
+            StringTokenizer tokenizer = new StringTokenizer(webAppClassPath, File.pathSeparator);
+            while (tokenizer.hasMoreTokens()) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(tokenizer.nextToken());
+            }
+            web.setExtraClasspath(sb.toString());
+        }
+
+        return web;
+    }
+
+    /**
+     * Copies a system property to a context init parameter, if the property is set.
+     */
+    private static void putInitParam(WebAppContext web, String name, String property) {
+        String value = System.getProperty(property);
+        if (value != null) {
+            web.setInitParameter(name, value);
+        }
+        return;
+    }
+
+    /**
+     * Applies the optional tuning settings of a connector, named prefix + setting (e.g. -Drjrmaxidletime).
+     */
+    private static void configureConnector(ServerConnector connector, String prefix) {
+        Integer maxIdleTime = Integer.getInteger(prefix + "maxidletime");
+        if (maxIdleTime != null) {
+            connector.setIdleTimeout(maxIdleTime);
+        }
+        Integer acceptQueueSize = Integer.getInteger(prefix + "acceptqueuesize");
+        if (acceptQueueSize != null) {
+            connector.setAcceptQueueSize(acceptQueueSize);
+        }
+        return;
+    }
+
+    /**
+     * Records the first request served, and prints the timeline again.
+     */
+    private static class FirstRequestHandler extends Handler.Wrapper {
+
+        private final StartupTimeline timeline;
+
+        private volatile boolean served;
+
+        FirstRequestHandler(StartupTimeline timeline) {
+            this.timeline = timeline;
+        }
+
+        @Override
+        public boolean handle(Request request, Response response, Callback callback) throws Exception {
+            boolean handled = super.handle(request, response, callback);
+            if (!this.served) {
+                synchronized (this) {
+                    if (!this.served) {
+                        this.served = true;
+                        this.timeline.mark("first request served");
+                        this.timeline.print();
+                    }
+                }
+            }
+            return handled;
+        }
+    }
+}
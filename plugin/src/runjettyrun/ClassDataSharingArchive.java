@@ -0,0 +1,280 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.launching.IVMInstall;
+import org.eclipse.jdt.launching.IVMInstall2;
+
+/**
+ * The class data sharing (CDS) archive of the start of a launch class path for a JRE. The archive is created once per
+ * JRE and class path, in the background, by running the bootstrap's ClassDataSharing class with
+ * -XX:ArchiveClassesAtExit; the launches then map it with -XX:SharedArchiveFile instead of parsing and verifying those
+ * classes again, and JVMs running side by side share its pages. Each class path gets its own archive, named after a
+ * hash of it and the java executable, so that configurations with different engines don't replace each other's. It
+ * is created again when one of its jars changes, since the JVM refuses an archive whose jars differ.
+ * <p>
+ * Dynamic archives need Java 13 or later. The JVM only shares the classes of the class path the archive was created
+ * with when it is a prefix of the class path of the launch. It skips class files older than version 50 (Java 6), so
+ * an archive is only worth it when the server jars are at least that recent; the bundled Jetty 6, Jasper and JDT jars
+ * are not.
+ */
+public class ClassDataSharingArchive {
+
+    private static final String MAIN_CLASS_NAME = "runjettyrun.ClassDataSharing";
+
+    /** The archives being created. */
+    private static final Set<File> creating = new HashSet<File>();
+
+    private final File archive;
+
+    private final File keyFile;
+
+    private final Properties key = new Properties();
+
+    private final String[] cmdLine;
+
+    /**
+     * @param vm the JRE of the launch
+     * @param java the java executable of the JRE
+     * @param classpath the jars at the start of the class path of the launch, in their order
+     */
+    public ClassDataSharingArchive(File java, String[] classpath) {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder stamps = new StringBuilder();
+        for (int i = 0; i < classpath.length; i++) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparator);
+                stamps.append(' ');
+            }
+            sb.append(classpath[i]);
+            File jar = new File(classpath[i]);
+            stamps.append(jar.length()).append('@').append(jar.lastModified());
+        }
+        this.key.setProperty("java", java.getAbsolutePath());
+        this.key.setProperty("classpath", sb.toString());
+        this.key.setProperty("stamps", stamps.toString());
+
+        File dir = Plugin.getDefault().getStateLocation().append("cds").toFile();
+        String name = hash(java.getAbsolutePath() + File.pathSeparator + sb);
+        this.archive = new File(dir, name + ".jsa");
+        this.keyFile = new File(dir, name + ".properties");
+        // the JVM warns about every class it can't archive, which is noise here
+        this.cmdLine = new String[] { java.getAbsolutePath(),
+                "-XX:ArchiveClassesAtExit=" + this.archive.getAbsolutePath(), "-Xlog:cds=off", "-Xlog:cds+dynamic=off",
+                "-classpath", sb.toString(), MAIN_CLASS_NAME };
+    }
+
+    /**
+     * @return the SHA-1 of a string, in hex
+     */
+    private static String hash(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < digest.length; i++) {
+                sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE has SHA-1
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            // and UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return whether the JRE can create and use dynamic archives
+     */
+    public static boolean isSupported(IVMInstall vm) {
+        if (!(vm instanceof IVMInstall2)) {
+            return false;
+        }
+        String version = ((IVMInstall2) vm).getJavaVersion();
+        if (version == null) {
+            return false;
+        }
+        if (version.startsWith("1.")) {
+            return false;
+        }
+        int end = 0;
+        while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+        }
+        return end > 0 && Integer.parseInt(version.substring(0, end)) >= 13;
+    }
+
+    /**
+     * @param classpath the locations of the Jetty and bootstrap jars
+     * @return whether they are all jars of class files the JVM can archive, judged by the first class of each
+     */
+    public static boolean canArchive(String[] classpath) {
+        for (int i = 0; i < classpath.length; i++) {
+            try {
+                if (getClassFileVersion(new File(classpath[i])) < 50) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the major version of the first class file of a jar, or -1 if it has none
+     */
+    private static int getClassFileVersion(File jar) throws IOException {
+        if (!jar.isFile()) {
+            return -1;
+        }
+        JarFile jarFile = new JarFile(jar);
+        try {
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                DataInputStream in = new DataInputStream(jarFile.getInputStream(entry));
+                try {
+                    if (in.readInt() != 0xCAFEBABE) {
+                        return -1;
+                    }
+                    in.readUnsignedShort();
+                    return in.readUnsignedShort();
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+        return -1;
+    }
+
+    /**
+     * @return the archive, or null if it doesn't exist (yet) or was created from other jars
+     */
+    public File getArchive() {
+        if (!this.archive.isFile() || !this.keyFile.isFile()) {
+            return null;
+        }
+        Properties stored = new Properties();
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(this.keyFile));
+            try {
+                stored.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Plugin.logError(e);
+            return null;
+        }
+        return stored.equals(this.key) ? this.archive : null;
+    }
+
+    /**
+     * Creates the archive in the background, unless it is already being created.
+     */
+    public void create() {
+        synchronized (creating) {
+            if (!creating.add(this.archive)) {
+                return;
+            }
+        }
+        Job job = new Job("Creating the class data sharing archive for Jetty") {
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    ClassDataSharingArchive.this.run();
+                } catch (IOException e) {
+                    return new Status(IStatus.ERROR, Plugin.PLUGIN_ID, IStatus.ERROR, "Could not create the class data "
+                            + "sharing archive " + ClassDataSharingArchive.this.archive, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Status.CANCEL_STATUS;
+                } finally {
+                    synchronized (creating) {
+                        creating.remove(ClassDataSharingArchive.this.archive);
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+        return;
+    }
+
+    private void run() throws IOException, InterruptedException {
+        this.keyFile.delete();
+        this.archive.delete();
+        this.archive.getParentFile().mkdirs();
+
+        ProcessBuilder builder = new ProcessBuilder(this.cmdLine);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        // read everything, so that the JVM never blocks on a full pipe
+        StringBuilder output = new StringBuilder();
+        InputStream in = process.getInputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                if (output.length() < 16384) {
+                    output.append(new String(buffer, 0, n));
+                }
+            }
+        } finally {
+            in.close();
+        }
+        if (process.waitFor() != 0 || !this.archive.isFile()) {
+            throw new IOException("The JVM did not create the archive:\n" + output);
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(this.keyFile));
+        try {
+            this.key.store(out, "The JRE and class path of " + this.archive.getName());
+        } finally {
+            out.close();
+        }
+        return;
+    }
+}
@@ -13,14 +13,23 @@
  */
 package runjettyrun;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -28,11 +37,12 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.ILaunchConfiguration;
-import org.eclipse.jdt.core.IJavaModel;
-import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
 import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
 import org.eclipse.jdt.launching.IRuntimeClasspathEntry;
 import org.eclipse.jdt.launching.JavaRuntime;
@@ -72,16 +82,48 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
     public IRuntimeClasspathEntry[] resolveClasspath(IRuntimeClasspathEntry[] entries, ILaunchConfiguration configuration)
     throws CoreException {
 
-        Set<IRuntimeClasspathEntry> all = new LinkedHashSet<IRuntimeClasspathEntry>(entries.length);
+        // Eclipse asks again and again (launching, the Classpath tab, source lookup); the cache is emptied when a
+        // class path changes. Unsaved changes of the launch configuration may resolve differently, so they aren't
+        // cached.
+        ProjectClasspathCache cache = Plugin.getClasspathCache();
+        boolean cacheable = !(configuration instanceof ILaunchConfigurationWorkingCopy)
+                || !((ILaunchConfigurationWorkingCopy) configuration).isDirty();
+        int generation = cache.getGeneration();
+
+        IRuntimeClasspathEntry[][] resolved = new IRuntimeClasspathEntry[entries.length][];
+        List<Integer> unresolved = new ArrayList<Integer>();
         for (int i = 0; i < entries.length; i++) {
-            IRuntimeClasspathEntry entry = entries[i];
-            IResource resource = entry.getResource();
+            IResource resource = entries[i].getResource();
             if (resource instanceof IProject) {
                 continue;
             }
+            resolved[i] = cacheable ? cache.getResolved(configuration, entries[i]) : null;
+            if (resolved[i] == null) {
+                unresolved.add(Integer.valueOf(i));
+            }
+        }
+
+        if (unresolved.size() > 1 && configuration.getAttribute(Plugin.ATTR_PARALLEL_RESOLVE, false)) {
+            this.resolveConcurrently(entries, unresolved, configuration, resolved);
+        } else {
+            for (Integer i : unresolved) {
+                resolved[i] = JavaRuntime.resolveRuntimeClasspathEntry(entries[i], configuration);
+            }
+        }
+        for (Integer i : unresolved) {
+            // the JRE container follows the installed JREs, which aren't watched
+            if (cacheable && !this.isJreContainer(entries[i])) {
+                cache.putResolved(configuration, entries[i], resolved[i], generation);
+            }
+        }
 
-            IRuntimeClasspathEntry[] resolved = JavaRuntime.resolveRuntimeClasspathEntry(entry, configuration);
-            all.addAll(Arrays.asList(resolved));
+        // merged in the order of the unresolved entries, whichever finished first
+        Set<IRuntimeClasspathEntry> all = new LinkedHashSet<IRuntimeClasspathEntry>(entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            if (resolved[i] == null) {
+                continue;
+            }
+            all.addAll(Arrays.asList(resolved[i]));
 
             // for (int j = 0; j < resolved.length; j++) {
             // IRuntimeClasspathEntry resolvedEntry = resolved[j];
@@ -108,6 +150,53 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
         return resolvedClasspath;
     }
 
+    /**
+     * Resolves the given entries on a pool of one thread per processor. Class path containers (Maven, Ivy) can each
+     * take a while to resolve, and don't depend on each other.
+     * 
+     * @param indexes the indexes of the entries to resolve
+     * @param resolved receives what each entry resolves to, at its index
+     */
+    private void resolveConcurrently(final IRuntimeClasspathEntry[] entries, List<Integer> indexes,
+            final ILaunchConfiguration configuration, IRuntimeClasspathEntry[][] resolved) throws CoreException {
+        int threads = Math.min(indexes.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<IRuntimeClasspathEntry[]>> futures = new ArrayList<Future<IRuntimeClasspathEntry[]>>();
+            for (final Integer i : indexes) {
+                futures.add(executor.submit(new Callable<IRuntimeClasspathEntry[]>() {
+
+                    public IRuntimeClasspathEntry[] call() throws CoreException {
+                        return JavaRuntime.resolveRuntimeClasspathEntry(entries[i], configuration);
+                    }
+                }));
+            }
+            for (int j = 0; j < indexes.size(); j++) {
+                try {
+                    resolved[indexes.get(j)] = futures.get(j).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CoreException) {
+                        throw (CoreException) e.getCause();
+                    }
+                    throw new CoreException(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, IStatus.ERROR,
+                            "Could not resolve " + entries[indexes.get(j)].getPath(), e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CoreException(new Status(IStatus.CANCEL, Plugin.PLUGIN_ID, IStatus.CANCEL,
+                            "Resolving the class path was interrupted", e));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return;
+    }
+
+    private boolean isJreContainer(IRuntimeClasspathEntry entry) {
+        return entry.getType() == IRuntimeClasspathEntry.CONTAINER
+                && JavaRuntime.JRE_CONTAINER.equals(entry.getPath().segment(0));
+    }
+
     private void addArchiveEntry(List<IRuntimeClasspathEntry> entries, URL bundleUrl) {
 
         try {
@@ -121,23 +210,83 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
         }
     }
 
-    private IRuntimeClasspathEntry[] addJettyAndBootstrap(IRuntimeClasspathEntry[] existing, ILaunchConfiguration config) {
+    private IRuntimeClasspathEntry[] addJettyAndBootstrap(IRuntimeClasspathEntry[] existing, ILaunchConfiguration config)
+    throws CoreException {
 
         List<IRuntimeClasspathEntry> entries = new ArrayList<IRuntimeClasspathEntry>();
         entries.addAll(Arrays.asList(existing));
+        entries.addAll(this.getJettyAndBootstrap(config));
+        return entries.toArray(new IRuntimeClasspathEntry[entries.size()]);
+    }
+
+    /**
+     * @return the locations of the server engine and bootstrap jars, as they appear on the class path of a launch
+     */
+    public String[] getJettyClasspath(ILaunchConfiguration configuration) throws CoreException {
+        List<IRuntimeClasspathEntry> entries = this.getJettyAndBootstrap(configuration);
+        String[] locations = new String[entries.size()];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = entries.get(i).getLocation();
+        }
+        return locations;
+    }
+
+    private List<IRuntimeClasspathEntry> getJettyAndBootstrap(ILaunchConfiguration configuration) throws CoreException {
+
+        List<IRuntimeClasspathEntry> entries = new ArrayList<IRuntimeClasspathEntry>();
         Bundle bundle = Plugin.getDefault().getBundle();
         URL installUrl = bundle.getEntry("/");
 
         this.addRelativeArchiveEntry(entries, installUrl, "run-jetty-run-bootstrap");
+
+        if (Plugin.ENGINE_JETTY12.equals(configuration.getAttribute(Plugin.ATTR_ENGINE, Plugin.ENGINE_JETTY6))) {
+            // Jetty 12 replaces the bundled jars altogether, including the servlet and JSP APIs
+            this.addRelativeArchiveEntry(entries, installUrl, "run-jetty-run-jetty12");
+            File[] jars = getEngineJars(configuration.getAttribute(Plugin.ATTR_ENGINE_HOME, ""));
+            if (jars.length == 0) {
+                throw new CoreException(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, IStatus.ERROR, MessageFormat.format(
+                        "No Jetty 12 jars in the engine directory \"{0}\"", configuration.getAttribute(
+                                Plugin.ATTR_ENGINE_HOME, "")), null));
+            }
+            for (int i = 0; i < jars.length; i++) {
+                entries.add(JavaRuntime.newArchiveRuntimeClasspathEntry(new Path(jars[i].getAbsolutePath())));
+            }
+            return entries;
+        }
+
         this.addRelativeArchiveEntry(entries, installUrl, "jetty-" + Plugin.JETTY_VERSION);
         this.addRelativeArchiveEntry(entries, installUrl, "jetty-util-" + Plugin.JETTY_VERSION);
         this.addRelativeArchiveEntry(entries, installUrl, "jetty-management-" + Plugin.JETTY_VERSION);
+        this.addRelativeArchiveEntry(entries, installUrl, "jetty-sslengine-" + Plugin.JETTY_VERSION);
         this.addRelativeArchiveEntry(entries, installUrl, "servlet-api-2.5-" + Plugin.JETTY_VERSION);
         this.addRelativeArchiveEntry(entries, installUrl, "jsp-api-2.1");
         this.addRelativeArchiveEntry(entries, installUrl, "jsp-2.1");
         this.addRelativeArchiveEntry(entries, installUrl, "core-3.1.1");
 
-        return entries.toArray(new IRuntimeClasspathEntry[entries.size()]);
+        return entries;
+    }
+
+    /**
+     * Returns the jars of an engine directory, in name order. Subdirectories are not searched, so that a Jetty
+     * distribution's lib directory can be used without pulling in every optional module.
+     * 
+     * @return the jars, none if the directory doesn't exist
+     */
+    static File[] getEngineJars(String engineHome) {
+        if (engineHome.length() == 0) {
+            return new File[0];
+        }
+        File[] jars = new File(engineHome).listFiles(new FileFilter() {
+
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(".jar");
+            }
+        });
+        if (jars == null) {
+            return new File[0];
+        }
+        Arrays.sort(jars);
+        return jars;
     }
 
     private void addRelativeArchiveEntry(List<IRuntimeClasspathEntry> entries, URL installUrl, String libJarName) {
@@ -155,7 +304,6 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
 
     private IRuntimeClasspathEntry[] filterWebInfLibs(IRuntimeClasspathEntry[] defaults, ILaunchConfiguration configuration) {
 
-        IJavaModel javaModel = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot());
         String projectName = null;
         String webAppDirName = null;
         try {
@@ -169,13 +317,10 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
             return defaults;
         }
 
-        IJavaProject project = javaModel.getJavaProject(projectName);
-        if (project == null) {
-            return defaults;
-        }
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(projectName);
 
         // this should be fine since the plugin checks whether WEB-INF exists
-        IFolder webInfDir = project.getProject().getFolder(new Path(webAppDirName)).getFolder("WEB-INF");
+        IFolder webInfDir = project.getFolder(new Path(webAppDirName)).getFolder("WEB-INF");
         if (webInfDir == null || !webInfDir.exists()) {
             return defaults;
         }
@@ -183,6 +328,7 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
         if (lib == null || !lib.exists()) {
             return defaults;
         }
+        Set<IPath> libraries = this.getLibraries(lib);
 
         // ok, so we have a WEB-INF/lib dir, which means that we should filter
         // out the entries in there since if the user wants those entries, they
@@ -194,7 +340,7 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
                 continue;
             }
             IResource resource = defaults[i].getResource();
-            if (resource != null && !resource.getParent().equals(lib)) {
+            if (resource != null && !libraries.contains(resource.getFullPath())) {
                 keep.add(defaults[i]);
                 continue;
             }
@@ -202,4 +348,28 @@ public class JettyLaunchConfigurationClassPathProvider extends StandardClasspath
 
         return keep.toArray(new IRuntimeClasspathEntry[keep.size()]);
     }
+
+    /**
+     * @return the full paths of the archives (and class folders) directly in the WEB-INF/lib folder
+     */
+    private Set<IPath> getLibraries(IFolder lib) {
+        ProjectClasspathCache cache = Plugin.getClasspathCache();
+        Set<IPath> libraries = cache.getLibraries(lib.getFullPath());
+        if (libraries != null) {
+            return libraries;
+        }
+        int generation = cache.getGeneration();
+
+        libraries = new HashSet<IPath>();
+        try {
+            IResource[] members = lib.members();
+            for (int i = 0; i < members.length; i++) {
+                libraries.add(members[i].getFullPath());
+            }
+        } catch (CoreException e) {
+            Plugin.logError(e);
+        }
+        cache.putLibraries(lib.getFullPath(), libraries, generation);
+        return libraries;
+    }
 }
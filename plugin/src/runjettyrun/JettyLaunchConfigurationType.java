@@ -13,25 +13,43 @@
  */
 package runjettyrun;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.launching.AbstractJavaLaunchConfigurationDelegate;
 import org.eclipse.jdt.launching.ExecutionArguments;
+import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
 import org.eclipse.jdt.launching.IRuntimeClasspathEntry;
 import org.eclipse.jdt.launching.IRuntimeClasspathProvider;
+import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMRunner;
 import org.eclipse.jdt.launching.JavaRuntime;
 import org.eclipse.jdt.launching.StandardClasspathProvider;
@@ -50,6 +68,10 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
     @SuppressWarnings("unchecked")
     public void launch(ILaunchConfiguration configuration, String mode, ILaunch launch, IProgressMonitor monitor) throws CoreException {
 
+        // the end times of the launch phases, passed to the bootstrap when the timeline is enabled
+        StringBuilder timeline = new StringBuilder();
+        this.mark(timeline, "launch requested");
+
         if (monitor == null) {
             monitor = new NullProgressMonitor();
         }
@@ -82,21 +104,19 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
             // VM-specific attributes
             Map vmAttributesMap = this.getVMSpecificAttributesMap(configuration);
 
+            this.mark(timeline, "launch settings read");
+
             // Class paths
             String[] classpath = this.getClasspath(configuration);
-            String[] webAppClasspathArray = this.getProjectClasspath(configuration);
-            String webAppClasspath = null;
-            {
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < webAppClasspathArray.length; i++) {
-                    String path = webAppClasspathArray[i];
-                    if (sb.length() > 0) {
-                        sb.append(File.pathSeparator);
-                    }
-                    sb.append(path);
-                }
-                webAppClasspath = sb.toString();
+            List<String> sharingArgs = new ArrayList<String>();
+            if (configuration.getAttribute(Plugin.ATTR_CLASS_DATA_SHARING, false)) {
+                this.shareJettyClasses(configuration, classpath, sharingArgs);
             }
+            this.mark(timeline, "Jetty class path resolved");
+            String webAppClasspath = this.toClasspath(this.getProjectClasspath(configuration,
+                    JavaRuntime.getJavaProject(configuration)));
+            List<String> webAppArgs = this.getWebAppArgs(configuration);
+            this.mark(timeline, "web app class path resolved");
 
             // Create VM configuration
             VMRunnerConfiguration runConfig = new VMRunnerConfiguration(mainTypeName, classpath);
@@ -105,9 +125,16 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
 
             List<String> runtimeVmArgs = this.getJettyArgs(configuration);
             runtimeVmArgs.add("-Drjrclasspath=" + webAppClasspath);
-            runtimeVmArgs.addAll(Arrays.asList(execArgs.getVMArgumentsArray()));
+            runtimeVmArgs.addAll(webAppArgs);
+            if (configuration.getAttribute(Plugin.ATTR_DESCRIPTOR, false)) {
+                runtimeVmArgs = this.writeDescriptor(configuration, runtimeVmArgs);
+                this.mark(timeline, "launch descriptor written");
+            }
+            // the VM arguments of the configuration come last, so that they can override the others
+            List<String> javaVmArgList = new ArrayList<String>(sharingArgs);
+            javaVmArgList.addAll(Arrays.asList(execArgs.getVMArgumentsArray()));
+            String[] javaVmArgs = javaVmArgList.toArray(new String[javaVmArgList.size()]);
 
-            runConfig.setVMArguments(runtimeVmArgs.toArray(new String[runtimeVmArgs.size()]));
             runConfig.setWorkingDirectory(workingDirName);
             runConfig.setVMSpecificAttributesMap(vmAttributesMap);
 
@@ -129,6 +156,36 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
             // set the default source locator if required
             this.setDefaultSourceLocator(launch, configuration);
             monitor.worked(1);
+            this.mark(timeline, "source locator set");
+
+            // a JVM kept ready since the previous launch takes the -Drjr... settings, and nothing else may differ
+            String[] standbyCmdLine = null;
+            StandbyVM standby = null;
+            StandbyManager standbys = Plugin.getStandbyManager();
+            if (configuration.getAttribute(Plugin.ATTR_STANDBY, false) && ILaunchManager.RUN_MODE.equals(mode)
+                    && runConfig.getBootClassPath() == null && (vmAttributesMap == null || vmAttributesMap.isEmpty())) {
+                standbyCmdLine = this.getStandbyCmdLine(configuration, classpath, javaVmArgs, mainTypeName,
+                        execArgs.getProgramArgumentsArray());
+                standby = standbys.take(configuration.getName(), standbyCmdLine, workingDir, envp);
+                standbys.prepare(launch, configuration.getName(), standbyCmdLine, workingDir, envp);
+            } else {
+                standbys.discard(configuration.getName());
+            }
+
+            // set last, so that the timeline covers everything up to the VM spawn
+            if (configuration.getAttribute(Plugin.ATTR_TIMELINE, false)) {
+                if (standby != null) {
+                    this.mark(timeline, "standby JVM taken");
+                }
+                runtimeVmArgs.add("-Drjrlaunchtimeline=" + timeline);
+            }
+
+            if (standby != null && this.handOver(standby, standbyCmdLine, launch, runtimeVmArgs, javaVmArgs)) {
+                return;
+            }
+
+            runtimeVmArgs.addAll(Arrays.asList(javaVmArgs));
+            runConfig.setVMArguments(runtimeVmArgs.toArray(new String[runtimeVmArgs.size()]));
 
             // Launch the configuration - 1 unit of work
             runner.run(runConfig, launch, monitor);
@@ -142,6 +199,146 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
         }
     }
 
+    /**
+     * Records the end of a launch phase.
+     */
+    private void mark(StringBuilder timeline, String phase) {
+        if (timeline.length() > 0) {
+            timeline.append(',');
+        }
+        timeline.append(phase).append('=').append(System.currentTimeMillis());
+        return;
+    }
+
+    /**
+     * Returns the command line of a {@link StandbyVM} for the launch, which has the VM arguments of the launch
+     * configuration but none of the -Drjr... settings.
+     */
+    private String[] getStandbyCmdLine(ILaunchConfiguration configuration, String[] classpath, String[] javaVmArgs,
+            String mainTypeName, String[] programArgs) throws CoreException {
+        File javaHome = this.verifyVMInstall(configuration).getInstallLocation();
+        List<String> cmdLine = new ArrayList<String>();
+        cmdLine.add(this.findJavaExecutable(javaHome).getAbsolutePath());
+        cmdLine.addAll(Arrays.asList(javaVmArgs));
+        cmdLine.add("-classpath");
+        cmdLine.add(this.toClasspath(classpath));
+        cmdLine.add(mainTypeName);
+        cmdLine.addAll(Arrays.asList(programArgs));
+        return cmdLine.toArray(new String[cmdLine.size()]);
+    }
+
+    /**
+     * Adds the VM argument for the class data sharing archive of the start of the class path, up to the last Jetty or
+     * bootstrap jar. The class path keeps its order, so that the same copy of a class wins with or without the
+     * archive; the JVM can only archive jars, so nothing is shared when a folder (such as the output folder of the
+     * project) comes before the last Jetty jar. Until the archive exists, it is created in the background for the next
+     * launches. Nothing is shared either when the JRE or the Jetty jars can't be archived.
+     * 
+     * @param sharingArgs receives the VM arguments
+     */
+    private void shareJettyClasses(ILaunchConfiguration configuration, String[] classpath, List<String> sharingArgs)
+    throws CoreException {
+        IVMInstall vm = this.verifyVMInstall(configuration);
+        if (!ClassDataSharingArchive.isSupported(vm)) {
+            return;
+        }
+        String[] jettyClasspath = new JettyLaunchConfigurationClassPathProvider().getJettyClasspath(
+                configuration);
+        if (!ClassDataSharingArchive.canArchive(jettyClasspath)) {
+            return;
+        }
+        Set<String> jetty = new HashSet<String>(Arrays.asList(jettyClasspath));
+        int end = 0;
+        while (end < classpath.length && !jetty.isEmpty()) {
+            if (!new File(classpath[end]).isFile()) {
+                return;
+            }
+            jetty.remove(classpath[end]);
+            end++;
+        }
+        if (!jetty.isEmpty()) {
+            return;
+        }
+        String[] prefix = new String[end];
+        System.arraycopy(classpath, 0, prefix, 0, end);
+
+        ClassDataSharingArchive archive = new ClassDataSharingArchive(this.findJavaExecutable(vm
+                .getInstallLocation()), prefix);
+        File file = archive.getArchive();
+        if (file != null) {
+            sharingArgs.add("-XX:SharedArchiveFile=" + file.getAbsolutePath());
+        } else {
+            archive.create();
+        }
+        return;
+    }
+
+    private File findJavaExecutable(File javaHome) throws CoreException {
+        String[] candidates = { "bin/java", "bin/java.exe", "jre/bin/java", "jre/bin/java.exe" };
+        for (int i = 0; i < candidates.length; i++) {
+            File java = new File(javaHome, candidates[i]);
+            if (java.isFile()) {
+                return java;
+            }
+        }
+        this.abort(MessageFormat.format("No java executable found in {0}", javaHome), null,
+                IJavaLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+        return null;
+    }
+
+    /**
+     * Hands the -Drjr... settings of the launch to a standby JVM, and adds its process to the launch.
+     * 
+     * @return false if the JVM could not take the launch
+     */
+    private boolean handOver(StandbyVM standby, String[] cmdLine, ILaunch launch, List<String> runtimeVmArgs,
+            String[] javaVmArgs) {
+        Properties settings = new Properties();
+        for (String arg : runtimeVmArgs) {
+            this.putSystemProperty(settings, arg);
+        }
+        // on the command line, these would come last and so win
+        for (int i = 0; i < javaVmArgs.length; i++) {
+            if (javaVmArgs[i].startsWith("-Drjr")) {
+                this.putSystemProperty(settings, javaVmArgs[i]);
+            }
+        }
+
+        Process process;
+        try {
+            process = standby.handOver(settings);
+        } catch (IOException e) {
+            Plugin.logError(e);
+            standby.dispose();
+            return false;
+        }
+        String label = MessageFormat.format("{0} ({1})", cmdLine[0], DateFormat.getDateTimeInstance(
+                DateFormat.MEDIUM, DateFormat.MEDIUM).format(new Date()));
+        IProcess iProcess = DebugPlugin.newProcess(launch, process, label);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cmdLine.length; i++) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(cmdLine[i]);
+        }
+        iProcess.setAttribute(IProcess.ATTR_CMDLINE, sb.toString());
+        return true;
+    }
+
+    /**
+     * Puts a -Dname=value argument into the properties.
+     */
+    private void putSystemProperty(Properties properties, String arg) {
+        int equals = arg.indexOf('=');
+        if (equals < 0) {
+            properties.setProperty(arg.substring("-D".length()), "");
+        } else {
+            properties.setProperty(arg.substring("-D".length(), equals), arg.substring(equals + 1));
+        }
+        return;
+    }
+
     private void addOptionalAttr(ILaunchConfiguration configuration, List<String> runtimeVmArgs, String cfgAttr, String argName)
     throws CoreException {
         String value = configuration.getAttribute(cfgAttr, "");
@@ -153,10 +350,101 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
         return;
     }
 
+    private void addBooleanAttr(ILaunchConfiguration configuration, List<String> runtimeVmArgs, String cfgAttr, String argName)
+    throws CoreException {
+        if (!configuration.getAttribute(cfgAttr, false)) {
+            return;
+        }
+        runtimeVmArgs.add("-Drjr" + argName + "=true");
+        return;
+    }
+
+    /**
+     * Moves the -Drjr... arguments into the launch descriptor of the configuration, which the bootstrap reads at
+     * startup, so that a long class path doesn't end up on the command line.
+     * 
+     * @return the argument naming the descriptor
+     */
+    private List<String> writeDescriptor(ILaunchConfiguration configuration, List<String> runtimeVmArgs)
+    throws CoreException {
+        Properties descriptor = new Properties();
+        for (String arg : runtimeVmArgs) {
+            this.putSystemProperty(descriptor, arg);
+        }
+
+        File file = Plugin.getDescriptorFile(configuration.getName());
+        file.getParentFile().mkdirs();
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                descriptor.store(out, "run-jetty-run launch descriptor of " + configuration.getName());
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            this.abort("Can't write the launch descriptor " + file, e, IJavaLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+        }
+
+        List<String> args = new ArrayList<String>();
+        args.add("-Drjrdescriptor=" + file.getAbsolutePath());
+        return args;
+    }
+
+    private String toClasspath(String[] locations) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < locations.length; i++) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparator);
+            }
+            sb.append(locations[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the arguments for the additional web applications, numbered from 1: -Drjrcontext.1, -Drjrwebapp.1 (an
+     * absolute path, since the working directory is the main project) and -Drjrclasspath.1.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> getWebAppArgs(ILaunchConfiguration configuration) throws CoreException {
+        List<String> args = new ArrayList<String>();
+        List<WebAppEntry> webApps = WebAppEntry.fromAttributes(configuration.getAttribute(Plugin.ATTR_WEBAPPS,
+                Collections.EMPTY_LIST));
+        if (webApps.isEmpty()) {
+            return args;
+        }
+
+        IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        int i = 0;
+        for (WebAppEntry webApp : webApps) {
+            i++;
+            IProject project = root.getProject(webApp.getProjectName());
+            if (!project.exists() || !project.isOpen()) {
+                this.abort(MessageFormat.format("Project {0} of web application {1} does not exist or is closed",
+                        webApp.getProjectName(), webApp.getContext()), null, IJavaLaunchConfigurationConstants.ERR_NOT_A_JAVA_PROJECT);
+            }
+            args.add("-Drjrcontext." + i + "=" + webApp.getContext());
+            args.add("-Drjrwebapp." + i + "=" + project.getFolder(webApp.getWebAppDir()).getLocation().toOSString());
+            String[] classpath = this.getProjectClasspath(configuration, JavaCore.create(project));
+            if (classpath.length > 0) {
+                args.add("-Drjrclasspath." + i + "=" + this.toClasspath(classpath));
+            }
+        }
+        args.add("-Drjrwebappcount=" + i);
+        this.addBooleanAttr(configuration, args, Plugin.ATTR_SHARED_LIBS, "sharedlibs");
+        return args;
+    }
+
     private List<String> getJettyArgs(ILaunchConfiguration configuration) throws CoreException {
 
         List<String> runtimeVmArgs = new ArrayList<String>();
 
+        if (Plugin.ENGINE_JETTY12.equals(configuration.getAttribute(Plugin.ATTR_ENGINE, Plugin.ENGINE_JETTY6))) {
+            runtimeVmArgs.add("-Drjrengine=" + Plugin.JETTY12_ENGINE_CLASS_NAME);
+            this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_HTTP2, "http2");
+            this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_VIRTUAL_THREADS, "virtualthreads");
+        }
+
         this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_CONTEXT, "context");
         this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_WEBAPPDIR, "webapp");
 
@@ -166,6 +454,70 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
         this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_KEYSTORE, "keystore");
         this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_KEY_PWD, "keypassword");
         this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_PWD, "password");
+        this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_SSL_NIO, "sslnio");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_SSL_ACCEPTORS, "sslacceptors");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_SSL_REQUEST_BUFFER_SIZE, "sslrequestbuffersize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_SSL_RESPONSE_BUFFER_SIZE, "sslresponsebuffersize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_SSL_MAX_IDLE_TIME, "sslmaxidletime");
+
+        boolean fileMappedBuffer = configuration.getAttribute(Plugin.ATTR_FILE_MAPPED_BUFFER, Plugin.getDefaultFileMappedBuffer());
+        runtimeVmArgs.add("-Drjrfilemappedbuffer=" + fileMappedBuffer);
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_MAX_CACHE_SIZE, "maxcachesize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_MAX_CACHED_FILE_SIZE, "maxcachedfilesize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_MAX_CACHED_FILES, "maxcachedfiles");
+
+        if (configuration.getAttribute(Plugin.ATTR_GZIP, false)) {
+            this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_GZIP, "gzip");
+            this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_GZIP_MIME_TYPES, "gzipmimetypes");
+            this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_GZIP_MIN_SIZE, "gzipminsize");
+            this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_GZIP_BUFFER_SIZE, "gzipbuffersize");
+        }
+
+        if (configuration.getAttribute(Plugin.ATTR_PRECOMPILE_JSPS, false)) {
+            this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_PRECOMPILE_JSPS, "precompilejsps");
+            this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_PRECOMPILE_THREADS, "precompilethreads");
+        }
+
+        this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_PARALLEL_INDEX, "parallelindex");
+        this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_RELOAD, "reload");
+        this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_REQUEST_STATS, "requeststats");
+
+        if (configuration.getAttribute(Plugin.ATTR_PARALLEL_INIT, false)) {
+            this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_PARALLEL_INIT, "parallelinit");
+            this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_INIT_THREADS, "initthreads");
+        }
+
+        if (configuration.getAttribute(Plugin.ATTR_TIMELINE, false)) {
+            this.addBooleanAttr(configuration, runtimeVmArgs, Plugin.ATTR_TIMELINE, "timeline");
+            this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_TIMELINE_FILE, "timelinefile");
+        }
+
+        if (configuration.getAttribute(Plugin.ATTR_PERSIST_JSPS, false)) {
+            String workDir = configuration.getAttribute(Plugin.ATTR_WORK_DIR, "");
+            if (workDir.length() == 0) {
+                workDir = Plugin.getDefaultWorkDir(configuration.getName());
+            }
+            runtimeVmArgs.add("-Drjrworkdir=" + workDir);
+        }
+
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_MIN_THREADS, "minthreads");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_MAX_THREADS, "maxthreads");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_THREAD_IDLE_TIME, "threadidletime");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_QUEUE_LIMIT, "queuelimit");
+
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_ACCEPTORS, "acceptors");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_ACCEPT_QUEUE_SIZE, "acceptqueuesize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_REQUEST_BUFFER_SIZE, "requestbuffersize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_RESPONSE_BUFFER_SIZE, "responsebuffersize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_HEADER_BUFFER_SIZE, "headerbuffersize");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_MAX_IDLE_TIME, "maxidletime");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_LOW_RESOURCES_CONNECTIONS, "lowresourcesconnections");
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_LOW_RESOURCE_MAX_IDLE_TIME, "lowresourcemaxidletime");
+
+        if (configuration.getAttribute(Plugin.ATTR_CONNECTOR_STATS, true)) {
+            runtimeVmArgs.add("-Drjrconnectorstats=true");
+        }
+        this.addOptionalAttr(configuration, runtimeVmArgs, Plugin.ATTR_STATS_PORT, "statsport");
 
         return runtimeVmArgs;
     }
@@ -182,14 +534,22 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
      * 
      * @see org.eclipse.jdt.launching.AbstractJavaLaunchConfigurationDelegate#getClasspath(org.eclipse.debug.core.ILaunchConfiguration)
      */
-    private String[] getProjectClasspath(ILaunchConfiguration configuration) throws CoreException {
+    private String[] getProjectClasspath(ILaunchConfiguration configuration, IJavaProject proj) throws CoreException {
 
-        IJavaProject proj = JavaRuntime.getJavaProject(configuration);
         if (proj == null) {
             Plugin.logError("No project!");
             return new String[0];
         }
 
+        // resolving is slow in large workspaces; the cache is emptied when a class path changes
+        ProjectClasspathCache cache = Plugin.getClasspathCache();
+        String projectName = proj.getElementName();
+        String[] cached = cache.get(configuration, projectName);
+        if (cached != null) {
+            return cached;
+        }
+        int generation = cache.getGeneration();
+
         IRuntimeClasspathEntry[] entries = JavaRuntime.computeUnresolvedRuntimeClasspath(proj);
 
         // Remove JRE entry/entries.
@@ -229,6 +589,8 @@ public class JettyLaunchConfigurationType extends AbstractJavaLaunchConfiguratio
             }
         }
 
-        return locations.toArray(new String[locations.size()]);
+        String[] result = locations.toArray(new String[locations.size()]);
+        cache.put(configuration, projectName, result, generation);
+        return result;
     }
 }
@@ -13,12 +13,14 @@
  */
 package runjettyrun;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
 
 import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
@@ -65,12 +67,173 @@ public class Plugin extends AbstractUIPlugin {
     /** configuration attribute for the SSL port to run Jetty on. */
     public static final String ATTR_PWD = Plugin.PLUGIN_ID + ".PWD_ATTR";
 
+    /** configuration attribute for using the non-blocking SslSelectChannelConnector for HTTPS. */
+    public static final String ATTR_SSL_NIO = Plugin.PLUGIN_ID + ".SSL_NIO_ATTR";
+
+    /** configuration attribute for the number of acceptor threads of the HTTPS connector. */
+    public static final String ATTR_SSL_ACCEPTORS = Plugin.PLUGIN_ID + ".SSL_ACCEPTORS_ATTR";
+
+    /** configuration attribute for the request buffer size (bytes) of the HTTPS connector. */
+    public static final String ATTR_SSL_REQUEST_BUFFER_SIZE = Plugin.PLUGIN_ID + ".SSL_REQUEST_BUFFER_SIZE_ATTR";
+
+    /** configuration attribute for the response buffer size (bytes) of the HTTPS connector. */
+    public static final String ATTR_SSL_RESPONSE_BUFFER_SIZE = Plugin.PLUGIN_ID + ".SSL_RESPONSE_BUFFER_SIZE_ATTR";
+
+    /** configuration attribute for the time (ms) an idle HTTPS connection is kept open. */
+    public static final String ATTR_SSL_MAX_IDLE_TIME = Plugin.PLUGIN_ID + ".SSL_MAX_IDLE_TIME_ATTR";
+
+    /** configuration attribute for compressing responses with Jetty's GzipFilter. */
+    public static final String ATTR_GZIP = Plugin.PLUGIN_ID + ".GZIP_ATTR";
+
+    /** configuration attribute for the comma separated MIME types to compress. */
+    public static final String ATTR_GZIP_MIME_TYPES = Plugin.PLUGIN_ID + ".GZIP_MIME_TYPES_ATTR";
+
+    /** configuration attribute for the minimum size (bytes) of a response to compress. */
+    public static final String ATTR_GZIP_MIN_SIZE = Plugin.PLUGIN_ID + ".GZIP_MIN_SIZE_ATTR";
+
+    /** configuration attribute for the buffer size (bytes) of the GzipFilter. */
+    public static final String ATTR_GZIP_BUFFER_SIZE = Plugin.PLUGIN_ID + ".GZIP_BUFFER_SIZE_ATTR";
+
+    /** default for {@link #ATTR_GZIP_MIME_TYPES}. */
+    public static final String DEFAULT_GZIP_MIME_TYPES = "text/html,text/plain,text/xml,text/css,text/javascript,"
+            + "application/javascript,application/x-javascript,application/json,application/xml";
+
+    /** configuration attribute for compiling all JSPs in the background once Jetty has started. */
+    public static final String ATTR_PRECOMPILE_JSPS = Plugin.PLUGIN_ID + ".PRECOMPILE_JSPS_ATTR";
+
+    /** configuration attribute for the number of JSPs compiled concurrently; empty means one per processor. */
+    public static final String ATTR_PRECOMPILE_THREADS = Plugin.PLUGIN_ID + ".PRECOMPILE_THREADS_ATTR";
+
+    /** configuration attribute for keeping the compiled JSPs in a work directory between launches. */
+    public static final String ATTR_PERSIST_JSPS = Plugin.PLUGIN_ID + ".PERSIST_JSPS_ATTR";
+
+    /** configuration attribute for the work directory of the compiled JSPs; empty means one in the plug-in's state. */
+    public static final String ATTR_WORK_DIR = Plugin.PLUGIN_ID + ".WORK_DIR_ATTR";
+
+    /** configuration attribute for opening and indexing the jars of the web app class path concurrently. */
+    public static final String ATTR_PARALLEL_INDEX = Plugin.PLUGIN_ID + ".PARALLEL_INDEX_ATTR";
+
+    /** configuration attribute for resolving the class path entries (containers) concurrently when launching. */
+    public static final String ATTR_PARALLEL_RESOLVE = Plugin.PLUGIN_ID + ".PARALLEL_RESOLVE_ATTR";
+
+    /** configuration attribute for keeping a JVM with Jetty loaded ready for the next launch (run mode only). */
+    public static final String ATTR_STANDBY = Plugin.PLUGIN_ID + ".STANDBY_ATTR";
+
+    /** configuration attribute for mapping the Jetty classes from a class data sharing archive (Java 13 or later). */
+    public static final String ATTR_CLASS_DATA_SHARING = Plugin.PLUGIN_ID + ".CLASS_DATA_SHARING_ATTR";
+
+    /** configuration attribute for the additional web applications, a list of {@link WebAppEntry} attributes. */
+    public static final String ATTR_WEBAPPS = Plugin.PLUGIN_ID + ".WEBAPPS_ATTR";
+
+    /** configuration attribute for loading the jars common to all the web applications once, in a shared loader. */
+    public static final String ATTR_SHARED_LIBS = Plugin.PLUGIN_ID + ".SHARED_LIBS_ATTR";
+
+    /** configuration attribute for reloading the web app in the running server when its classes change. */
+    public static final String ATTR_RELOAD = Plugin.PLUGIN_ID + ".RELOAD_ATTR";
+
+    /** configuration attribute for passing the class path and settings in a file rather than on the command line. */
+    public static final String ATTR_DESCRIPTOR = Plugin.PLUGIN_ID + ".DESCRIPTOR_ATTR";
+
+    /** configuration attribute for printing the time taken by each phase of the launch, once Jetty is started. */
+    public static final String ATTR_TIMELINE = Plugin.PLUGIN_ID + ".TIMELINE_ATTR";
+
+    /** configuration attribute for the file the launch timeline is also written to; empty means none. */
+    public static final String ATTR_TIMELINE_FILE = Plugin.PLUGIN_ID + ".TIMELINE_FILE_ATTR";
+
+    /** configuration attribute for publishing request counts and latencies per URL pattern over JMX. */
+    public static final String ATTR_REQUEST_STATS = Plugin.PLUGIN_ID + ".REQUEST_STATS_ATTR";
+
+    /** configuration attribute for initializing the servlets that share a load-on-startup value concurrently. */
+    public static final String ATTR_PARALLEL_INIT = Plugin.PLUGIN_ID + ".PARALLEL_INIT_ATTR";
+
+    /** configuration attribute for the number of servlets initialized concurrently; empty for the default. */
+    public static final String ATTR_INIT_THREADS = Plugin.PLUGIN_ID + ".INIT_THREADS_ATTR";
+
+    /** configuration attribute for the minimum number of threads in Jetty's thread pool. */
+    public static final String ATTR_MIN_THREADS = Plugin.PLUGIN_ID + ".MIN_THREADS_ATTR";
+
+    /** configuration attribute for the maximum number of threads in Jetty's thread pool. */
+    public static final String ATTR_MAX_THREADS = Plugin.PLUGIN_ID + ".MAX_THREADS_ATTR";
+
+    /** configuration attribute for the time (ms) an idle pool thread is kept before it is stopped. */
+    public static final String ATTR_THREAD_IDLE_TIME = Plugin.PLUGIN_ID + ".THREAD_IDLE_TIME_ATTR";
+
+    /** configuration attribute for the maximum number of requests waiting for a pool thread. */
+    public static final String ATTR_QUEUE_LIMIT = Plugin.PLUGIN_ID + ".QUEUE_LIMIT_ATTR";
+
+    /** configuration attribute for the number of acceptor threads of the HTTP connector. */
+    public static final String ATTR_ACCEPTORS = Plugin.PLUGIN_ID + ".ACCEPTORS_ATTR";
+
+    /** configuration attribute for the backlog of the HTTP connector's server socket. */
+    public static final String ATTR_ACCEPT_QUEUE_SIZE = Plugin.PLUGIN_ID + ".ACCEPT_QUEUE_SIZE_ATTR";
+
+    /** configuration attribute for the request buffer size (bytes) of the HTTP connector. */
+    public static final String ATTR_REQUEST_BUFFER_SIZE = Plugin.PLUGIN_ID + ".REQUEST_BUFFER_SIZE_ATTR";
+
+    /** configuration attribute for the response buffer size (bytes) of the HTTP connector. */
+    public static final String ATTR_RESPONSE_BUFFER_SIZE = Plugin.PLUGIN_ID + ".RESPONSE_BUFFER_SIZE_ATTR";
+
+    /** configuration attribute for the header buffer size (bytes) of the HTTP connector. */
+    public static final String ATTR_HEADER_BUFFER_SIZE = Plugin.PLUGIN_ID + ".HEADER_BUFFER_SIZE_ATTR";
+
+    /** configuration attribute for the time (ms) an idle HTTP connection is kept open. */
+    public static final String ATTR_MAX_IDLE_TIME = Plugin.PLUGIN_ID + ".MAX_IDLE_TIME_ATTR";
+
+    /** configuration attribute for the number of connections above which the HTTP connector is low on resources. */
+    public static final String ATTR_LOW_RESOURCES_CONNECTIONS = Plugin.PLUGIN_ID + ".LOW_RESOURCES_CONNECTIONS_ATTR";
+
+    /** configuration attribute for the idle time (ms) of HTTP connections while low on resources. */
+    public static final String ATTR_LOW_RESOURCE_MAX_IDLE_TIME = Plugin.PLUGIN_ID + ".LOW_RESOURCE_MAX_IDLE_TIME_ATTR";
+
+    /** configuration attribute for collecting the connection statistics of the connectors; on by default. */
+    public static final String ATTR_CONNECTOR_STATS = Plugin.PLUGIN_ID + ".CONNECTOR_STATS_ATTR";
+
+    /** configuration attribute for the port serving the statistics as JSON at /__rjr/stats; empty means none. */
+    public static final String ATTR_STATS_PORT = Plugin.PLUGIN_ID + ".STATS_PORT_ATTR";
+
+    /** configuration attribute for serving static files from memory-mapped buffers (locks the files on Windows). */
+    public static final String ATTR_FILE_MAPPED_BUFFER = Plugin.PLUGIN_ID + ".FILE_MAPPED_BUFFER_ATTR";
+
+    /** configuration attribute for the maximum size (bytes) of the DefaultServlet's static content cache. */
+    public static final String ATTR_MAX_CACHE_SIZE = Plugin.PLUGIN_ID + ".MAX_CACHE_SIZE_ATTR";
+
+    /** configuration attribute for the maximum size (bytes) of a single file in the static content cache. */
+    public static final String ATTR_MAX_CACHED_FILE_SIZE = Plugin.PLUGIN_ID + ".MAX_CACHED_FILE_SIZE_ATTR";
+
+    /** configuration attribute for the maximum number of files in the static content cache. */
+    public static final String ATTR_MAX_CACHED_FILES = Plugin.PLUGIN_ID + ".MAX_CACHED_FILES_ATTR";
+
+    /** configuration attribute for the server engine, {@link #ENGINE_JETTY6} or {@link #ENGINE_JETTY12}. */
+    public static final String ATTR_ENGINE = Plugin.PLUGIN_ID + ".ENGINE_ATTR";
+
+    /** configuration attribute for the directory of the Jetty 12 jars, which are not part of the plug-in. */
+    public static final String ATTR_ENGINE_HOME = Plugin.PLUGIN_ID + ".ENGINE_HOME_ATTR";
+
+    /** configuration attribute for serving HTTP/2 without TLS (h2c) on the HTTP port (Jetty 12). */
+    public static final String ATTR_HTTP2 = Plugin.PLUGIN_ID + ".HTTP2_ATTR";
+
+    /** configuration attribute for handling the requests on virtual threads (Jetty 12, Java 21 or later). */
+    public static final String ATTR_VIRTUAL_THREADS = Plugin.PLUGIN_ID + ".VIRTUAL_THREADS_ATTR";
+
+    /** the bundled Jetty 6 engine, the default. */
+    public static final String ENGINE_JETTY6 = "jetty6";
+
+    /** the Jetty 12 engine, run with the jars of {@link #ATTR_ENGINE_HOME}. */
+    public static final String ENGINE_JETTY12 = "jetty12";
+
+    /** the full class name of the Jetty 12 engine, in lib/run-jetty-run-jetty12.jar. */
+    public static final String JETTY12_ENGINE_CLASS_NAME = "runjettyrun.jetty12.Jetty12Engine";
+
     /** used to calculate the jars to include. */
     public static final String JETTY_VERSION = "6.1.25";
 
     // The shared instance
     private static Plugin plugin;
 
+    private ProjectClasspathCache classpathCache;
+
+    private StandbyManager standbyManager;
+
     public Plugin() {
     }
 
@@ -78,10 +241,60 @@ public class Plugin extends AbstractUIPlugin {
         return plugin;
     }
 
+    /**
+     * @return the resolved web app class paths of the launch configurations
+     */
+    public static ProjectClasspathCache getClasspathCache() {
+        return plugin.classpathCache;
+    }
+
+    /**
+     * @return the JVMs kept ready for the next launches
+     */
+    public static StandbyManager getStandbyManager() {
+        return plugin.standbyManager;
+    }
+
     public static Image getJettyIcon() {
         return plugin.getImageRegistry().get(JETTY_ICON);
     }
 
+    /**
+     * Memory-mapped static files can't be modified or deleted on Windows while Jetty holds them (issue 7), so they
+     * are only used by default on other platforms.
+     * 
+     * @return the default for {@link #ATTR_FILE_MAPPED_BUFFER}
+     */
+    public static boolean getDefaultFileMappedBuffer() {
+        return !Platform.OS_WIN32.equals(Platform.getOS());
+    }
+
+    /**
+     * @param configurationName the name of the launch configuration
+     * @return the default work directory of a launch configuration, below the state location of the plug-in
+     */
+    public static String getDefaultWorkDir(String configurationName) {
+        return plugin.getStateLocation().append("work").append(toFileName(configurationName)).toOSString();
+    }
+
+    /**
+     * @param configurationName the name of the launch configuration
+     * @return the launch descriptor file of a launch configuration, below the state location of the plug-in
+     */
+    public static File getDescriptorFile(String configurationName) {
+        return plugin.getStateLocation().append("descriptors").append(toFileName(configurationName) + ".properties")
+                .toFile();
+    }
+
+    /**
+     * The readable part alone would let "my app" and "my_app" (or "App" and "app", on a case-insensitive file system)
+     * share a file, so it is followed by the hash of the real name.
+     */
+    private static String toFileName(String configurationName) {
+        return configurationName.replaceAll("[^A-Za-z0-9._-]", "_") + "-"
+                + Integer.toHexString(configurationName.hashCode());
+    }
+
     static public void logError(Exception e) {
         ILog log = plugin.getLog();
         StringWriter stringWriter = new StringWriter();
@@ -101,10 +314,18 @@ public class Plugin extends AbstractUIPlugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         plugin = this;
+        this.classpathCache = new ProjectClasspathCache();
+        this.classpathCache.start();
+        this.standbyManager = new StandbyManager();
+        this.standbyManager.start();
     }
 
     @Override
     public void stop(BundleContext context) throws Exception {
+        this.standbyManager.stop();
+        this.standbyManager = null;
+        this.classpathCache.stop();
+        this.classpathCache = null;
         plugin = null;
         super.stop(context);
     }
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchConfigurationListener;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.launching.IRuntimeClasspathEntry;
+
+/**
+ * Remembers the resolved web app class paths of each launch configuration, so that launching again doesn't resolve
+ * the class paths of its projects and of the projects they depend on. The cache is emptied when the class path of any
+ * Java project changes (projects depend on each other, so the whole cache is affected), and the class paths of a
+ * launch configuration are dropped when it changes.
+ * <p>
+ * It also remembers, for the class path provider, what each runtime class path entry of a launch configuration
+ * resolves to, and which archives a WEB-INF/lib folder holds. The latter are dropped when something in the folder
+ * changes.
+ */
+public class ProjectClasspathCache implements IElementChangedListener, IResourceChangeListener,
+        ILaunchConfigurationListener {
+
+    /** The delta flags of a Java project telling that its class path may resolve differently. */
+    private static final int PROJECT_CLASSPATH_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+            | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+    /** The delta flags of a package fragment root telling that the class path changed. */
+    private static final int ROOT_CLASSPATH_FLAGS = IJavaElementDelta.F_ADDED_TO_CLASSPATH
+            | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_REORDER;
+
+    /** The class paths per project name, per launch configuration name. */
+    private final Map<String, Map<String, String[]>> entries = new HashMap<String, Map<String, String[]>>();
+
+    /** The resolved runtime class path entries per unresolved entry, per launch configuration name. */
+    private final Map<String, Map<IRuntimeClasspathEntry, IRuntimeClasspathEntry[]>> resolved =
+            new HashMap<String, Map<IRuntimeClasspathEntry, IRuntimeClasspathEntry[]>>();
+
+    /** The full paths of the archives of a WEB-INF/lib folder, per full path of the folder. */
+    private final Map<IPath, Set<IPath>> libraries = new HashMap<IPath, Set<IPath>>();
+
+    /** Increased for every invalidation, so that a class path resolved meanwhile isn't stored. */
+    private int generation;
+
+    public ProjectClasspathCache() {
+    }
+
+    /**
+     * Starts listening to the Java model, to the workspace and to the launch configurations.
+     */
+    public void start() {
+        JavaCore.addElementChangedListener(this, ElementChangedEvent.POST_CHANGE);
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+        DebugPlugin.getDefault().getLaunchManager().addLaunchConfigurationListener(this);
+        return;
+    }
+
+    public void stop() {
+        JavaCore.removeElementChangedListener(this);
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+        DebugPlugin.getDefault().getLaunchManager().removeLaunchConfigurationListener(this);
+        this.clear();
+        return;
+    }
+
+    /**
+     * @return the cached class path, or null
+     */
+    public synchronized String[] get(ILaunchConfiguration configuration, String projectName) {
+        Map<String, String[]> classpaths = this.entries.get(configuration.getName());
+        String[] locations = classpaths != null ? classpaths.get(projectName) : null;
+        return locations != null ? locations.clone() : null;
+    }
+
+    /**
+     * @return the number to pass to {@link #put}, taken before resolving the class path
+     */
+    public synchronized int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Stores a class path, unless the cache was invalidated since it was resolved.
+     * 
+     * @param generation the result of {@link #getGeneration()} before the class path was resolved
+     */
+    public synchronized void put(ILaunchConfiguration configuration, String projectName, String[] locations,
+            int generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        Map<String, String[]> classpaths = this.entries.get(configuration.getName());
+        if (classpaths == null) {
+            classpaths = new HashMap<String, String[]>();
+            this.entries.put(configuration.getName(), classpaths);
+        }
+        classpaths.put(projectName, locations.clone());
+        return;
+    }
+
+    /**
+     * @return what the entry resolves to for the launch configuration, or null
+     */
+    public synchronized IRuntimeClasspathEntry[] getResolved(ILaunchConfiguration configuration,
+            IRuntimeClasspathEntry entry) {
+        Map<IRuntimeClasspathEntry, IRuntimeClasspathEntry[]> entries = this.resolved.get(configuration.getName());
+        IRuntimeClasspathEntry[] resolvedEntries = entries != null ? entries.get(entry) : null;
+        return resolvedEntries != null ? resolvedEntries.clone() : null;
+    }
+
+    /**
+     * Stores what an entry resolves to, unless the cache was invalidated since it was resolved.
+     * 
+     * @param generation the result of {@link #getGeneration()} before the entry was resolved
+     */
+    public synchronized void putResolved(ILaunchConfiguration configuration, IRuntimeClasspathEntry entry,
+            IRuntimeClasspathEntry[] resolvedEntries, int generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        Map<IRuntimeClasspathEntry, IRuntimeClasspathEntry[]> entries = this.resolved.get(configuration.getName());
+        if (entries == null) {
+            entries = new HashMap<IRuntimeClasspathEntry, IRuntimeClasspathEntry[]>();
+            this.resolved.put(configuration.getName(), entries);
+        }
+        entries.put(entry, resolvedEntries.clone());
+        return;
+    }
+
+    /**
+     * @param folder the full path of a WEB-INF/lib folder
+     * @return the full paths of the archives in the folder, or null
+     */
+    public synchronized Set<IPath> getLibraries(IPath folder) {
+        return this.libraries.get(folder);
+    }
+
+    /**
+     * Stores the archives of a WEB-INF/lib folder, unless the cache was invalidated since the folder was read.
+     * 
+     * @param generation the result of {@link #getGeneration()} before the folder was read
+     */
+    public synchronized void putLibraries(IPath folder, Set<IPath> archives, int generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        this.libraries.put(folder, Collections.unmodifiableSet(archives));
+        return;
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.resolved.clear();
+        this.libraries.clear();
+        this.generation++;
+        return;
+    }
+
+    private synchronized void remove(ILaunchConfiguration configuration) {
+        this.entries.remove(configuration.getName());
+        this.resolved.remove(configuration.getName());
+        this.generation++;
+        return;
+    }
+
+    public void elementChanged(ElementChangedEvent event) {
+        if (this.affectsClasspath(event.getDelta())) {
+            this.clear();
+        }
+        return;
+    }
+
+    private boolean affectsClasspath(IJavaElementDelta delta) {
+        switch (delta.getElement().getElementType()) {
+        case IJavaElement.JAVA_MODEL:
+            break;
+        case IJavaElement.JAVA_PROJECT:
+            if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & PROJECT_CLASSPATH_FLAGS) != 0) {
+                return true;
+            }
+            break;
+        case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+            return (delta.getFlags() & ROOT_CLASSPATH_FLAGS) != 0;
+        default:
+            return false;
+        }
+        IJavaElementDelta[] children = delta.getAffectedChildren();
+        for (int i = 0; i < children.length; i++) {
+            if (this.affectsClasspath(children[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null) {
+            return;
+        }
+        // a project that appears, disappears, or is opened or closed changes what resolves to what
+        IResourceDelta[] projects = delta.getAffectedChildren();
+        for (int i = 0; i < projects.length; i++) {
+            if (projects[i].getKind() != IResourceDelta.CHANGED
+                    || (projects[i].getFlags() & (IResourceDelta.OPEN | IResourceDelta.DESCRIPTION)) != 0) {
+                this.clear();
+                return;
+            }
+        }
+        this.removeLibraries(delta);
+        return;
+    }
+
+    /**
+     * Drops the archives of the WEB-INF/lib folders the delta touches.
+     */
+    private synchronized void removeLibraries(IResourceDelta delta) {
+        boolean removed = false;
+        for (Iterator<IPath> i = this.libraries.keySet().iterator(); i.hasNext();) {
+            if (delta.findMember(i.next()) != null) {
+                i.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            this.generation++;
+        }
+        return;
+    }
+
+    public void launchConfigurationAdded(ILaunchConfiguration configuration) {
+        this.remove(configuration);
+        return;
+    }
+
+    public void launchConfigurationChanged(ILaunchConfiguration configuration) {
+        if (!configuration.isWorkingCopy()) {
+            this.remove(configuration);
+        }
+        return;
+    }
+
+    public void launchConfigurationRemoved(ILaunchConfiguration configuration) {
+        this.remove(configuration);
+        return;
+    }
+}
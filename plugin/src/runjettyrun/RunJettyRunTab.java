@@ -17,6 +17,11 @@ import static org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants.ATTR_P
 
 import java.io.File;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -38,6 +43,8 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.debug.ui.launchConfigurations.JavaLaunchTab;
 import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
 import org.eclipse.jdt.ui.JavaElementLabelProvider;
+import org.eclipse.jface.dialogs.IInputValidator;
+import org.eclipse.jface.dialogs.InputDialog;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.window.Window;
 import org.eclipse.swt.SWT;
@@ -53,9 +60,13 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.dialogs.ContainerSelectionDialog;
 import org.eclipse.ui.dialogs.ElementListSelectionDialog;
@@ -79,12 +90,86 @@ public class RunJettyRunTab extends JavaLaunchTab {
     private Text fKeyPasswordText;
 
     private Text fPasswordText;
+    private Button fSslNioButton;
     private Text fContextText;
 
     private Text fWebAppDirText;
 
+    private Button fPrecompileJspsButton;
+    private Text fPrecompileThreadsText;
+
+    private Button fPersistJspsButton;
+    private Text fWorkDirText;
+    private Button fWorkDirButton;
+
+    private Button fParallelIndexButton;
+
+    private Button fParallelResolveButton;
+
+    private Button fStandbyButton;
+
+    private Button fClassDataSharingButton;
+
+    private Button fReloadButton;
+
+    private Button fDescriptorButton;
+
+    private Button fRequestStatsButton;
+
+    private Button fParallelInitButton;
+    private Text fInitThreadsText;
+
+    private Button fTimelineButton;
+    private Text fTimelineFileText;
+
     private Button fWebappDirButton;
 
+    private Button fFileMappedBufferButton;
+    private Text fMaxCacheSizeText;
+    private Text fMaxCachedFileSizeText;
+    private Text fMaxCachedFilesText;
+
+    private Button fGzipButton;
+    private Text fGzipMimeTypesText;
+    private Text fGzipMinSizeText;
+    private Text fGzipBufferSizeText;
+
+    private Text fMinThreadsText;
+    private Text fMaxThreadsText;
+    private Text fThreadIdleTimeText;
+    private Text fQueueLimitText;
+
+    private Text fAcceptorsText;
+    private Text fAcceptQueueSizeText;
+    private Text fRequestBufferSizeText;
+    private Text fResponseBufferSizeText;
+    private Text fHeaderBufferSizeText;
+    private Text fMaxIdleTimeText;
+    private Text fLowResourcesConnectionsText;
+    private Text fLowResourceMaxIdleTimeText;
+
+    private Text fSslAcceptorsText;
+    private Text fSslRequestBufferSizeText;
+    private Text fSslResponseBufferSizeText;
+    private Text fSslMaxIdleTimeText;
+
+    private Table fWebAppsTable;
+    private Button fEditWebAppButton;
+    private Button fRemoveWebAppButton;
+    private Button fSharedLibsButton;
+
+    /** The additional web applications, as shown in the table. */
+    private final List<WebAppEntry> fWebApps = new ArrayList<WebAppEntry>();
+
+    private Button fConnectorStatsButton;
+    private Text fStatsPortText;
+
+    private Button fJetty12Button;
+    private Text fEngineHomeText;
+    private Button fEngineHomeButton;
+    private Button fHttp2Button;
+    private Button fVirtualThreadsButton;
+
     /**
      * Construct.
      */
@@ -109,6 +194,18 @@ public class RunJettyRunTab extends JavaLaunchTab {
         this.createVerticalSpacer(comp, 1);
         this.createJettyOptionsEditor(comp);
         this.createVerticalSpacer(comp, 1);
+        this.createWebAppsEditor(comp);
+        this.createVerticalSpacer(comp, 1);
+        this.createStaticContentEditor(comp);
+        this.createVerticalSpacer(comp, 1);
+        this.createCompressionEditor(comp);
+        this.createVerticalSpacer(comp, 1);
+        this.createThreadPoolEditor(comp);
+        this.createVerticalSpacer(comp, 1);
+        this.createConnectorTuningEditor(comp);
+        this.createVerticalSpacer(comp, 1);
+        this.createEngineEditor(comp);
+        this.createVerticalSpacer(comp, 1);
         this.setControl(comp);
         // PlatformUI.getWorkbench().getHelpSystem().setHelp(getControl(),
         // IJavaDebugHelpContextIds.LAUNCH_CONFIGURATION_DIALOG_MAIN_TAB);
@@ -142,9 +239,77 @@ public class RunJettyRunTab extends JavaLaunchTab {
             this.fKeystoreText.setText(configuration.getAttribute(Plugin.ATTR_KEYSTORE, ""));
             this.fPasswordText.setText(configuration.getAttribute(Plugin.ATTR_PWD, ""));
             this.fKeyPasswordText.setText(configuration.getAttribute(Plugin.ATTR_KEY_PWD, ""));
+            this.fSslNioButton.setSelection(configuration.getAttribute(Plugin.ATTR_SSL_NIO, false));
 
             this.fContextText.setText(configuration.getAttribute(Plugin.ATTR_CONTEXT, ""));
             this.fWebAppDirText.setText(configuration.getAttribute(Plugin.ATTR_WEBAPPDIR, ""));
+            this.fPrecompileJspsButton.setSelection(configuration.getAttribute(Plugin.ATTR_PRECOMPILE_JSPS, false));
+            this.fPrecompileThreadsText.setText(configuration.getAttribute(Plugin.ATTR_PRECOMPILE_THREADS, ""));
+            this.fPrecompileThreadsText.setEnabled(this.fPrecompileJspsButton.getSelection());
+            this.fPersistJspsButton.setSelection(configuration.getAttribute(Plugin.ATTR_PERSIST_JSPS, false));
+            this.fWorkDirText.setText(configuration.getAttribute(Plugin.ATTR_WORK_DIR, ""));
+            this.setWorkDirEnabled(this.fPersistJspsButton.getSelection());
+            this.fParallelIndexButton.setSelection(configuration.getAttribute(Plugin.ATTR_PARALLEL_INDEX, false));
+            this.fReloadButton.setSelection(configuration.getAttribute(Plugin.ATTR_RELOAD, false));
+            this.fDescriptorButton.setSelection(configuration.getAttribute(Plugin.ATTR_DESCRIPTOR, false));
+            this.fRequestStatsButton.setSelection(configuration.getAttribute(Plugin.ATTR_REQUEST_STATS, false));
+            this.fParallelInitButton.setSelection(configuration.getAttribute(Plugin.ATTR_PARALLEL_INIT, false));
+            this.fInitThreadsText.setText(configuration.getAttribute(Plugin.ATTR_INIT_THREADS, ""));
+            this.fInitThreadsText.setEnabled(this.fParallelInitButton.getSelection());
+            this.fParallelResolveButton.setSelection(configuration.getAttribute(Plugin.ATTR_PARALLEL_RESOLVE, false));
+            this.fStandbyButton.setSelection(configuration.getAttribute(Plugin.ATTR_STANDBY, false));
+            this.fClassDataSharingButton.setSelection(configuration.getAttribute(Plugin.ATTR_CLASS_DATA_SHARING,
+                    false));
+            this.fTimelineButton.setSelection(configuration.getAttribute(Plugin.ATTR_TIMELINE, false));
+            this.fTimelineFileText.setText(configuration.getAttribute(Plugin.ATTR_TIMELINE_FILE, ""));
+            this.fTimelineFileText.setEnabled(this.fTimelineButton.getSelection());
+
+            this.fFileMappedBufferButton.setSelection(configuration.getAttribute(Plugin.ATTR_FILE_MAPPED_BUFFER,
+                    Plugin.getDefaultFileMappedBuffer()));
+            this.fMaxCacheSizeText.setText(configuration.getAttribute(Plugin.ATTR_MAX_CACHE_SIZE, ""));
+            this.fMaxCachedFileSizeText.setText(configuration.getAttribute(Plugin.ATTR_MAX_CACHED_FILE_SIZE, ""));
+            this.fMaxCachedFilesText.setText(configuration.getAttribute(Plugin.ATTR_MAX_CACHED_FILES, ""));
+
+            this.fGzipButton.setSelection(configuration.getAttribute(Plugin.ATTR_GZIP, false));
+            this.fGzipMimeTypesText.setText(configuration.getAttribute(Plugin.ATTR_GZIP_MIME_TYPES, Plugin.DEFAULT_GZIP_MIME_TYPES));
+            this.fGzipMinSizeText.setText(configuration.getAttribute(Plugin.ATTR_GZIP_MIN_SIZE, ""));
+            this.fGzipBufferSizeText.setText(configuration.getAttribute(Plugin.ATTR_GZIP_BUFFER_SIZE, ""));
+            this.setGzipEnabled(this.fGzipButton.getSelection());
+
+            this.fMinThreadsText.setText(configuration.getAttribute(Plugin.ATTR_MIN_THREADS, ""));
+            this.fMaxThreadsText.setText(configuration.getAttribute(Plugin.ATTR_MAX_THREADS, ""));
+            this.fThreadIdleTimeText.setText(configuration.getAttribute(Plugin.ATTR_THREAD_IDLE_TIME, ""));
+            this.fQueueLimitText.setText(configuration.getAttribute(Plugin.ATTR_QUEUE_LIMIT, ""));
+
+            this.fAcceptorsText.setText(configuration.getAttribute(Plugin.ATTR_ACCEPTORS, ""));
+            this.fAcceptQueueSizeText.setText(configuration.getAttribute(Plugin.ATTR_ACCEPT_QUEUE_SIZE, ""));
+            this.fRequestBufferSizeText.setText(configuration.getAttribute(Plugin.ATTR_REQUEST_BUFFER_SIZE, ""));
+            this.fResponseBufferSizeText.setText(configuration.getAttribute(Plugin.ATTR_RESPONSE_BUFFER_SIZE, ""));
+            this.fHeaderBufferSizeText.setText(configuration.getAttribute(Plugin.ATTR_HEADER_BUFFER_SIZE, ""));
+            this.fMaxIdleTimeText.setText(configuration.getAttribute(Plugin.ATTR_MAX_IDLE_TIME, ""));
+            this.fLowResourcesConnectionsText.setText(configuration.getAttribute(Plugin.ATTR_LOW_RESOURCES_CONNECTIONS, ""));
+            this.fLowResourceMaxIdleTimeText.setText(configuration.getAttribute(Plugin.ATTR_LOW_RESOURCE_MAX_IDLE_TIME, ""));
+
+            this.fSslAcceptorsText.setText(configuration.getAttribute(Plugin.ATTR_SSL_ACCEPTORS, ""));
+            this.fSslRequestBufferSizeText.setText(configuration.getAttribute(Plugin.ATTR_SSL_REQUEST_BUFFER_SIZE, ""));
+            this.fSslResponseBufferSizeText.setText(configuration.getAttribute(Plugin.ATTR_SSL_RESPONSE_BUFFER_SIZE, ""));
+            this.fSslMaxIdleTimeText.setText(configuration.getAttribute(Plugin.ATTR_SSL_MAX_IDLE_TIME, ""));
+
+            this.fWebApps.clear();
+            this.fWebApps.addAll(WebAppEntry.fromAttributes(configuration.getAttribute(Plugin.ATTR_WEBAPPS,
+                    Collections.EMPTY_LIST)));
+            this.updateWebAppsTable();
+            this.fSharedLibsButton.setSelection(configuration.getAttribute(Plugin.ATTR_SHARED_LIBS, false));
+
+            this.fConnectorStatsButton.setSelection(configuration.getAttribute(Plugin.ATTR_CONNECTOR_STATS, true));
+            this.fStatsPortText.setText(configuration.getAttribute(Plugin.ATTR_STATS_PORT, ""));
+
+            this.fJetty12Button.setSelection(Plugin.ENGINE_JETTY12.equals(configuration.getAttribute(Plugin.ATTR_ENGINE,
+                    Plugin.ENGINE_JETTY6)));
+            this.fEngineHomeText.setText(configuration.getAttribute(Plugin.ATTR_ENGINE_HOME, ""));
+            this.fHttp2Button.setSelection(configuration.getAttribute(Plugin.ATTR_HTTP2, false));
+            this.fVirtualThreadsButton.setSelection(configuration.getAttribute(Plugin.ATTR_VIRTUAL_THREADS, false));
+            this.setEngineEnabled(this.fJetty12Button.getSelection());
         } catch (CoreException e) {
             Plugin.logError(e);
         }
@@ -200,12 +365,30 @@ public class RunJettyRunTab extends JavaLaunchTab {
             return false;
         }
 
+        if (this.isInvalidWebApps(this.fContextText.getText().trim())) {
+            return false;
+        }
+
+        String workDir = this.fWorkDirText.getText().trim();
+        if (this.fPersistJspsButton.getSelection() && workDir.length() > 0 && new File(workDir).isFile()) {
+            this.setErrorMessage(MessageFormat.format("JSP work directory {0} is a file", workDir));
+            return false;
+        }
+
         String port = this.fPortText.getText().trim();
         String sslPort = this.fSSLPortText.getText().trim();
         if (port.length() == 0 && sslPort.length() == 0) {
             this.setErrorMessage("Must specify at least one port");
             return false;
         }
+        if (this.fPrecompileJspsButton.getSelection()
+                && this.isInvalidNumber(this.fPrecompileThreadsText.getText().trim(), "Compiler threads")) {
+            return false;
+        }
+        if (this.fParallelInitButton.getSelection()
+                && this.isInvalidNumber(this.fInitThreadsText.getText().trim(), "Initializer threads")) {
+            return false;
+        }
         if (this.isInvalidPort(port)) {
             return false;
         }
@@ -235,6 +418,103 @@ public class RunJettyRunTab extends JavaLaunchTab {
             }
         }
 
+        if (this.isInvalidNumber(this.fMaxCacheSizeText.getText().trim(), "Max cache size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fMaxCachedFileSizeText.getText().trim(), "Max cached file size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fMaxCachedFilesText.getText().trim(), "Max cached files")) {
+            return false;
+        }
+
+        if (this.isInvalidNumber(this.fGzipMinSizeText.getText().trim(), "Min gzip size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fGzipBufferSizeText.getText().trim(), "Gzip buffer size")) {
+            return false;
+        }
+
+        String minThreads = this.fMinThreadsText.getText().trim();
+        String maxThreads = this.fMaxThreadsText.getText().trim();
+        if (this.isInvalidNumber(minThreads, "Min threads")) {
+            return false;
+        }
+        if (this.isInvalidNumber(maxThreads, "Max threads")) {
+            return false;
+        }
+        if (minThreads.length() > 0 && maxThreads.length() > 0 && Integer.parseInt(minThreads) > Integer.parseInt(maxThreads)) {
+            this.setErrorMessage("Min threads must not be greater than max threads");
+            return false;
+        }
+        if (this.isInvalidNumber(this.fThreadIdleTimeText.getText().trim(), "Thread idle timeout")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fQueueLimitText.getText().trim(), "Queue limit")) {
+            return false;
+        }
+
+        if (this.isInvalidNumber(this.fAcceptorsText.getText().trim(), "Acceptors")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fAcceptQueueSizeText.getText().trim(), "Accept queue size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fRequestBufferSizeText.getText().trim(), "Request buffer size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fResponseBufferSizeText.getText().trim(), "Response buffer size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fHeaderBufferSizeText.getText().trim(), "Header buffer size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fMaxIdleTimeText.getText().trim(), "Max idle time")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fLowResourcesConnectionsText.getText().trim(), "Low resources connections")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fLowResourceMaxIdleTimeText.getText().trim(), "Low resources idle time")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fSslAcceptorsText.getText().trim(), "SSL acceptors")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fSslRequestBufferSizeText.getText().trim(), "SSL request buffer size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fSslResponseBufferSizeText.getText().trim(), "SSL response buffer size")) {
+            return false;
+        }
+        if (this.isInvalidNumber(this.fSslMaxIdleTimeText.getText().trim(), "SSL max idle time")) {
+            return false;
+        }
+        String statsPort = this.fStatsPortText.getText().trim();
+        if (this.isInvalidPort(statsPort)) {
+            return false;
+        }
+        if (statsPort.length() > 0 && (statsPort.equals(port) || statsPort.equals(sslPort))) {
+            this.setErrorMessage(MessageFormat.format("Statistics port {0} is already used by Jetty", statsPort));
+            return false;
+        }
+
+        if (this.fJetty12Button.getSelection()) {
+            String engineHome = this.fEngineHomeText.getText().trim();
+            if (Plugin.getDefault().getBundle().getEntry("lib/run-jetty-run-jetty12.jar") == null) {
+                this.setErrorMessage("Jetty 12 needs lib/run-jetty-run-jetty12.jar in the plug-in");
+                return false;
+            }
+            if (engineHome.length() == 0) {
+                this.setErrorMessage("The directory of the Jetty 12 jars is not set");
+                return false;
+            }
+            if (JettyLaunchConfigurationClassPathProvider.getEngineJars(engineHome).length == 0) {
+                this.setErrorMessage(MessageFormat.format("No jars in the directory {0}", engineHome));
+                return false;
+            }
+        }
+
         return true;
     }
 
@@ -247,9 +527,66 @@ public class RunJettyRunTab extends JavaLaunchTab {
         configuration.setAttribute(Plugin.ATTR_KEYSTORE, this.fKeystoreText.getText());
         configuration.setAttribute(Plugin.ATTR_PWD, this.fPasswordText.getText());
         configuration.setAttribute(Plugin.ATTR_KEY_PWD, this.fKeyPasswordText.getText());
+        configuration.setAttribute(Plugin.ATTR_SSL_NIO, this.fSslNioButton.getSelection());
 
         configuration.setAttribute(Plugin.ATTR_CONTEXT, this.fContextText.getText());
         configuration.setAttribute(Plugin.ATTR_WEBAPPDIR, this.fWebAppDirText.getText());
+        configuration.setAttribute(Plugin.ATTR_PRECOMPILE_JSPS, this.fPrecompileJspsButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_PRECOMPILE_THREADS, this.fPrecompileThreadsText.getText());
+        configuration.setAttribute(Plugin.ATTR_PERSIST_JSPS, this.fPersistJspsButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_WORK_DIR, this.fWorkDirText.getText());
+        configuration.setAttribute(Plugin.ATTR_PARALLEL_INDEX, this.fParallelIndexButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_RELOAD, this.fReloadButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_DESCRIPTOR, this.fDescriptorButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_REQUEST_STATS, this.fRequestStatsButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_PARALLEL_INIT, this.fParallelInitButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_INIT_THREADS, this.fInitThreadsText.getText());
+        configuration.setAttribute(Plugin.ATTR_PARALLEL_RESOLVE, this.fParallelResolveButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_STANDBY, this.fStandbyButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_CLASS_DATA_SHARING, this.fClassDataSharingButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_TIMELINE, this.fTimelineButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_TIMELINE_FILE, this.fTimelineFileText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_FILE_MAPPED_BUFFER, this.fFileMappedBufferButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_MAX_CACHE_SIZE, this.fMaxCacheSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_MAX_CACHED_FILE_SIZE, this.fMaxCachedFileSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_MAX_CACHED_FILES, this.fMaxCachedFilesText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_GZIP, this.fGzipButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_GZIP_MIME_TYPES, this.fGzipMimeTypesText.getText());
+        configuration.setAttribute(Plugin.ATTR_GZIP_MIN_SIZE, this.fGzipMinSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_GZIP_BUFFER_SIZE, this.fGzipBufferSizeText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_MIN_THREADS, this.fMinThreadsText.getText());
+        configuration.setAttribute(Plugin.ATTR_MAX_THREADS, this.fMaxThreadsText.getText());
+        configuration.setAttribute(Plugin.ATTR_THREAD_IDLE_TIME, this.fThreadIdleTimeText.getText());
+        configuration.setAttribute(Plugin.ATTR_QUEUE_LIMIT, this.fQueueLimitText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_ACCEPTORS, this.fAcceptorsText.getText());
+        configuration.setAttribute(Plugin.ATTR_ACCEPT_QUEUE_SIZE, this.fAcceptQueueSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_REQUEST_BUFFER_SIZE, this.fRequestBufferSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_RESPONSE_BUFFER_SIZE, this.fResponseBufferSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_HEADER_BUFFER_SIZE, this.fHeaderBufferSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_MAX_IDLE_TIME, this.fMaxIdleTimeText.getText());
+        configuration.setAttribute(Plugin.ATTR_LOW_RESOURCES_CONNECTIONS, this.fLowResourcesConnectionsText.getText());
+        configuration.setAttribute(Plugin.ATTR_LOW_RESOURCE_MAX_IDLE_TIME, this.fLowResourceMaxIdleTimeText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_SSL_ACCEPTORS, this.fSslAcceptorsText.getText());
+        configuration.setAttribute(Plugin.ATTR_SSL_REQUEST_BUFFER_SIZE, this.fSslRequestBufferSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_SSL_RESPONSE_BUFFER_SIZE, this.fSslResponseBufferSizeText.getText());
+        configuration.setAttribute(Plugin.ATTR_SSL_MAX_IDLE_TIME, this.fSslMaxIdleTimeText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_WEBAPPS, WebAppEntry.toAttributes(this.fWebApps));
+        configuration.setAttribute(Plugin.ATTR_SHARED_LIBS, this.fSharedLibsButton.getSelection());
+
+        configuration.setAttribute(Plugin.ATTR_CONNECTOR_STATS, this.fConnectorStatsButton.getSelection());
+        configuration.setAttribute(Plugin.ATTR_STATS_PORT, this.fStatsPortText.getText());
+
+        configuration.setAttribute(Plugin.ATTR_ENGINE, this.fJetty12Button.getSelection() ? Plugin.ENGINE_JETTY12
+                : Plugin.ENGINE_JETTY6);
+        configuration.setAttribute(Plugin.ATTR_ENGINE_HOME, this.fEngineHomeText.getText().trim());
+        configuration.setAttribute(Plugin.ATTR_HTTP2, this.fHttp2Button.getSelection());
+        configuration.setAttribute(Plugin.ATTR_VIRTUAL_THREADS, this.fVirtualThreadsButton.getSelection());
 
         return;
     }
@@ -296,9 +633,67 @@ public class RunJettyRunTab extends JavaLaunchTab {
         configuration.setAttribute(Plugin.ATTR_KEYSTORE, keystore);
         configuration.setAttribute(Plugin.ATTR_PWD, "changeit");
         configuration.setAttribute(Plugin.ATTR_KEY_PWD, "changeit");
+        configuration.setAttribute(Plugin.ATTR_SSL_NIO, false);
 
         configuration.setAttribute(Plugin.ATTR_CONTEXT, "/");
         configuration.setAttribute(Plugin.ATTR_WEBAPPDIR, "");
+        configuration.setAttribute(Plugin.ATTR_PRECOMPILE_JSPS, false);
+        configuration.setAttribute(Plugin.ATTR_PRECOMPILE_THREADS, "");
+        configuration.setAttribute(Plugin.ATTR_PERSIST_JSPS, false);
+        configuration.setAttribute(Plugin.ATTR_WORK_DIR, "");
+        configuration.setAttribute(Plugin.ATTR_PARALLEL_INDEX, false);
+        configuration.setAttribute(Plugin.ATTR_RELOAD, false);
+        configuration.setAttribute(Plugin.ATTR_DESCRIPTOR, false);
+        configuration.setAttribute(Plugin.ATTR_REQUEST_STATS, false);
+        configuration.setAttribute(Plugin.ATTR_PARALLEL_INIT, false);
+        configuration.setAttribute(Plugin.ATTR_INIT_THREADS, "");
+        configuration.setAttribute(Plugin.ATTR_PARALLEL_RESOLVE, false);
+        configuration.setAttribute(Plugin.ATTR_STANDBY, false);
+        configuration.setAttribute(Plugin.ATTR_CLASS_DATA_SHARING, false);
+        configuration.setAttribute(Plugin.ATTR_TIMELINE, false);
+        configuration.setAttribute(Plugin.ATTR_TIMELINE_FILE, "");
+
+        configuration.setAttribute(Plugin.ATTR_FILE_MAPPED_BUFFER, Plugin.getDefaultFileMappedBuffer());
+
+        // empty means Jetty's own default
+        configuration.setAttribute(Plugin.ATTR_MAX_CACHE_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_MAX_CACHED_FILE_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_MAX_CACHED_FILES, "");
+
+        configuration.setAttribute(Plugin.ATTR_GZIP, false);
+        configuration.setAttribute(Plugin.ATTR_GZIP_MIME_TYPES, Plugin.DEFAULT_GZIP_MIME_TYPES);
+        configuration.setAttribute(Plugin.ATTR_GZIP_MIN_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_GZIP_BUFFER_SIZE, "");
+
+        configuration.setAttribute(Plugin.ATTR_MIN_THREADS, "");
+        configuration.setAttribute(Plugin.ATTR_MAX_THREADS, "");
+        configuration.setAttribute(Plugin.ATTR_THREAD_IDLE_TIME, "");
+        configuration.setAttribute(Plugin.ATTR_QUEUE_LIMIT, "");
+
+        configuration.setAttribute(Plugin.ATTR_ACCEPTORS, "");
+        configuration.setAttribute(Plugin.ATTR_ACCEPT_QUEUE_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_REQUEST_BUFFER_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_RESPONSE_BUFFER_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_HEADER_BUFFER_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_MAX_IDLE_TIME, "");
+        configuration.setAttribute(Plugin.ATTR_LOW_RESOURCES_CONNECTIONS, "");
+        configuration.setAttribute(Plugin.ATTR_LOW_RESOURCE_MAX_IDLE_TIME, "");
+
+        configuration.setAttribute(Plugin.ATTR_SSL_ACCEPTORS, "");
+        configuration.setAttribute(Plugin.ATTR_SSL_REQUEST_BUFFER_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_SSL_RESPONSE_BUFFER_SIZE, "");
+        configuration.setAttribute(Plugin.ATTR_SSL_MAX_IDLE_TIME, "");
+
+        configuration.setAttribute(Plugin.ATTR_WEBAPPS, Collections.EMPTY_LIST);
+        configuration.setAttribute(Plugin.ATTR_SHARED_LIBS, false);
+
+        configuration.setAttribute(Plugin.ATTR_CONNECTOR_STATS, true);
+        configuration.setAttribute(Plugin.ATTR_STATS_PORT, "");
+
+        configuration.setAttribute(Plugin.ATTR_ENGINE, Plugin.ENGINE_JETTY6);
+        configuration.setAttribute(Plugin.ATTR_ENGINE_HOME, "");
+        configuration.setAttribute(Plugin.ATTR_HTTP2, false);
+        configuration.setAttribute(Plugin.ATTR_VIRTUAL_THREADS, false);
 
         return;
     }
@@ -325,11 +720,60 @@ public class RunJettyRunTab extends JavaLaunchTab {
         this.fKeystoreButton.setEnabled(b);
         this.fPasswordText.setEnabled(b);
         this.fKeyPasswordText.setEnabled(b);
+        this.fSslNioButton.setEnabled(b);
+
+        return;
+    }
+
+    protected void handleBrowseWorkDir() {
+        DirectoryDialog dialog = new DirectoryDialog(this.getControl().getShell());
+        dialog.setFilterPath(this.fWorkDirText.getText());
+        dialog.setText("Choose the work directory for compiled JSPs");
+        String res = dialog.open();
+        if (res != null) {
+            this.fWorkDirText.setText(res);
+        }
+    }
+
+    protected void setWorkDirEnabled(boolean b) {
+        this.fWorkDirText.setEnabled(b);
+        this.fWorkDirButton.setEnabled(b);
+
+        return;
+    }
+
+    protected void handleBrowseEngineHome() {
+        DirectoryDialog dialog = new DirectoryDialog(this.getControl().getShell());
+        dialog.setFilterPath(this.fEngineHomeText.getText());
+        dialog.setText("Choose the directory of the Jetty 12 jars");
+        String res = dialog.open();
+        if (res != null) {
+            this.fEngineHomeText.setText(res);
+        }
+    }
+
+    protected void setEngineEnabled(boolean b) {
+        this.fEngineHomeText.setEnabled(b);
+        this.fEngineHomeButton.setEnabled(b);
+        this.fHttp2Button.setEnabled(b);
+        this.fVirtualThreadsButton.setEnabled(b);
+
+        return;
+    }
+
+    protected void setGzipEnabled(boolean b) {
+        this.fGzipMimeTypesText.setEnabled(b);
+        this.fGzipMinSizeText.setEnabled(b);
+        this.fGzipBufferSizeText.setEnabled(b);
 
         return;
     }
 
     private IJavaProject chooseJavaProject() {
+        return this.chooseJavaProject(this.fProjText.getText().trim());
+    }
+
+    private IJavaProject chooseJavaProject(String projectName) {
         ILabelProvider labelProvider = new JavaElementLabelProvider(JavaElementLabelProvider.SHOW_DEFAULT);
         ElementListSelectionDialog dialog = new ElementListSelectionDialog(this.getShell(), labelProvider);
         dialog.setTitle("Project Selection");
@@ -341,7 +785,6 @@ public class RunJettyRunTab extends JavaLaunchTab {
         }
 
         IJavaProject javaProject = null;
-        String projectName = this.fProjText.getText().trim();
         if (projectName.length() > 0) {
             javaProject = JavaCore.create(this.getWorkspaceRoot()).getJavaProject(projectName);
         }
@@ -355,7 +798,17 @@ public class RunJettyRunTab extends JavaLaunchTab {
     }
 
     private void chooseWebappDir() {
-        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(this.fProjText.getText());
+        String webAppDir = this.chooseWebappDir(this.fProjText.getText());
+        if (webAppDir != null) {
+            this.fWebAppDirText.setText(webAppDir);
+        }
+    }
+
+    /**
+     * @return the chosen directory, relative to the project, or null
+     */
+    private String chooseWebappDir(String projectName) {
+        IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(projectName);
         ContainerSelectionDialog dialog = new ContainerSelectionDialog(this.getShell(), project, false,
         "Select Web Application Directory");
         dialog.setTitle("Folder Selection");
@@ -369,9 +822,9 @@ public class RunJettyRunTab extends JavaLaunchTab {
         if ((results != null) && (results.length > 0) && (results[0] instanceof IPath)) {
             IPath path = (IPath) results[0];
             path = path.removeFirstSegments(1);
-            String containerName = path.makeRelative().toString();
-            this.fWebAppDirText.setText(containerName);
+            return path.makeRelative().toString();
         }
+        return null;
     }
 
     private GridData createHFillGridData() {
@@ -436,6 +889,153 @@ public class RunJettyRunTab extends JavaLaunchTab {
         gd = new GridData();
         this.fWebappDirButton.setLayoutData(gd);
 
+        // Row 3: "Precompile JSPs" Check box, "Compiler threads", Text field
+        this.fPrecompileJspsButton = this.createCheckButton(group, "Precompile JSPs after startup");
+        this.fPrecompileJspsButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.fPrecompileThreadsText.setEnabled(RunJettyRunTab.this.fPrecompileJspsButton.getSelection());
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        this.fPrecompileThreadsText = this.createLabeledText(group, "Compiler threads");
+        this.fPrecompileThreadsText.setEnabled(false);
+
+        // Row 4: "Keep compiled JSPs" Check box (3 columns)
+        this.fPersistJspsButton = this.createCheckButton(group, "Keep compiled JSPs between launches");
+        this.fPersistJspsButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.setWorkDirEnabled(RunJettyRunTab.this.fPersistJspsButton.getSelection());
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fPersistJspsButton.setLayoutData(gd);
+
+        // Row 5: "Work dir", Text field (empty for the default), "Browse..." Button
+        this.fWorkDirText = this.createLabeledText(group, "Work dir");
+        this.fWorkDirButton = this.createPushButton(group, "B&rowse...", null);
+        this.fWorkDirButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.handleBrowseWorkDir();
+            }
+        });
+        this.setWorkDirEnabled(false);
+
+        // Row 6: "Index class path in parallel" Check box (3 columns)
+        this.fParallelIndexButton = this.createCheckButton(group, "Open class path jars in parallel at startup");
+        this.fParallelIndexButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fParallelIndexButton.setLayoutData(gd);
+
+        // Row 7: "Reload" Check box (3 columns)
+        this.fReloadButton = this.createCheckButton(group, "Reload the web application when classes change");
+        this.fReloadButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fReloadButton.setLayoutData(gd);
+
+        // Row 8: "Descriptor" Check box (3 columns)
+        this.fDescriptorButton = this.createCheckButton(group, "Pass the class path in a file, not on the command line");
+        this.fDescriptorButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fDescriptorButton.setLayoutData(gd);
+
+        // Row 9: "Startup timeline" Check box, "Timeline file", Text field (empty for none)
+        this.fTimelineButton = this.createCheckButton(group, "Print the startup timeline");
+        this.fTimelineButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.fTimelineFileText.setEnabled(RunJettyRunTab.this.fTimelineButton.getSelection());
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        this.fTimelineFileText = this.createLabeledText(group, "Timeline file");
+        this.fTimelineFileText.setEnabled(false);
+
+        // Row 10: "Request statistics" Check box (3 columns)
+        this.fRequestStatsButton = this.createCheckButton(group, "Publish request statistics over JMX");
+        this.fRequestStatsButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fRequestStatsButton.setLayoutData(gd);
+
+        // Row 11: "Parallel initialization" Check box, "Initializer threads", Text field (empty for the default)
+        this.fParallelInitButton = this.createCheckButton(group, "Initialize servlets in parallel");
+        this.fParallelInitButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.fInitThreadsText.setEnabled(RunJettyRunTab.this.fParallelInitButton.getSelection());
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        this.fInitThreadsText = this.createLabeledText(group, "Initializer threads");
+        this.fInitThreadsText.setEnabled(false);
+
+        // Row 12: "Parallel class path resolution" Check box (3 columns)
+        this.fParallelResolveButton = this.createCheckButton(group, "Resolve class path containers in parallel");
+        this.fParallelResolveButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fParallelResolveButton.setLayoutData(gd);
+
+        // Row 13: "Standby JVM" Check box (3 columns)
+        this.fStandbyButton = this.createCheckButton(group, "Keep a JVM with Jetty loaded ready for the next run");
+        this.fStandbyButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fStandbyButton.setLayoutData(gd);
+
+        // Row 14: "Class data sharing" Check box (3 columns)
+        this.fClassDataSharingButton = this.createCheckButton(group,
+                "Share the Jetty classes between launches (class data sharing, Java 13 or later and Java 6+ server jars)");
+        this.fClassDataSharingButton.setToolTipText("The class path keeps its order, and only the jars before the first "
+                + "folder can be shared: move the Jetty jars ahead of the project's folders on the Classpath tab");
+        this.fClassDataSharingButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fClassDataSharingButton.setLayoutData(gd);
+
         return;
     }
 
@@ -554,6 +1154,20 @@ public class RunJettyRunTab extends JavaLaunchTab {
         this.fKeyPasswordText.setFont(font);
         this.fKeyPasswordText.setEnabled(false);
 
+        // blocking SslSocketConnector or non-blocking SslSelectChannelConnector
+
+        this.fSslNioButton = this.createCheckButton(group, "Non-blocking HTTPS (SslSelectChannelConnector)");
+        this.fSslNioButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 4;
+        this.fSslNioButton.setLayoutData(gd);
+        this.fSslNioButton.setEnabled(false);
+
         return;
     }
 
@@ -591,6 +1205,448 @@ public class RunJettyRunTab extends JavaLaunchTab {
         });
     }
 
+    /**
+     * Creates a label and a text field that updates the dialog when modified.
+     * 
+     * @param group the parent group, laid out in columns
+     * @param label the text of the label
+     * @return the text field
+     */
+    private Text createLabeledText(Group group, String label) {
+        new Label(group, SWT.LEFT).setText(label);
+        Text text = new Text(group, SWT.SINGLE | SWT.BORDER);
+        text.addModifyListener(new ModifyListener() {
+
+            public void modifyText(ModifyEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        text.setLayoutData(this.createHFillGridData());
+        text.setFont(group.getFont());
+        return text;
+    }
+
+    /**
+     * Creates the widgets for the additional web applications, deployed in the same server:
+     * 
+     * Table (Project, Directory, Context) Add... Edit... Remove buttons
+     * 
+     * @param parent the parent composite
+     */
+    private void createWebAppsEditor(Composite parent) {
+        Font font = parent.getFont();
+        Group group = new Group(parent, SWT.NONE);
+        group.setText("Additional Web Applications");
+        GridData gd = this.createHFillGridData();
+        group.setLayoutData(gd);
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 2;
+        group.setLayout(layout);
+        group.setFont(font);
+
+        this.fWebAppsTable = new Table(group, SWT.BORDER | SWT.FULL_SELECTION | SWT.SINGLE);
+        this.fWebAppsTable.setHeaderVisible(true);
+        this.fWebAppsTable.setFont(font);
+        gd = this.createHFillGridData();
+        gd.verticalSpan = 3;
+        gd.heightHint = this.fWebAppsTable.getItemHeight() * 4;
+        this.fWebAppsTable.setLayoutData(gd);
+        String[] titles = {"Project", "Directory", "Context"};
+        for (int i = 0; i < titles.length; i++) {
+            TableColumn column = new TableColumn(this.fWebAppsTable, SWT.LEFT);
+            column.setText(titles[i]);
+            column.setWidth(150);
+        }
+        this.fWebAppsTable.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.setWebAppButtonsEnabled();
+            }
+        });
+
+        Button addButton = this.createPushButton(group, "&Add...", null);
+        addButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.handleAddWebApp();
+            }
+        });
+        this.fEditWebAppButton = this.createPushButton(group, "&Edit...", null);
+        this.fEditWebAppButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.handleEditWebApp();
+            }
+        });
+        this.fRemoveWebAppButton = this.createPushButton(group, "Re&move", null);
+        this.fRemoveWebAppButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.handleRemoveWebApp();
+            }
+        });
+        this.fSharedLibsButton = this.createCheckButton(group, "Load the jars common to all web applications once");
+        this.fSharedLibsButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        this.fSharedLibsButton.setLayoutData(gd);
+        Label sharedLibsNote = new Label(group, SWT.WRAP);
+        sharedLibsNote.setText("Their classes are loaded by a parent of the web applications' class loaders, so their "
+                + "static state is common to all the web applications. A jar using classes of a jar that not all of them "
+                + "have is left to each web application. The console lists the shared jars.");
+        sharedLibsNote.setFont(font);
+        gd = this.createHFillGridData();
+        gd.horizontalSpan = 2;
+        gd.widthHint = 400;
+        sharedLibsNote.setLayoutData(gd);
+
+        this.setWebAppButtonsEnabled();
+
+        return;
+    }
+
+    private void updateWebAppsTable() {
+        this.fWebAppsTable.removeAll();
+        for (WebAppEntry webApp : this.fWebApps) {
+            TableItem item = new TableItem(this.fWebAppsTable, SWT.NONE);
+            item.setText(new String[] {webApp.getProjectName(), webApp.getWebAppDir(), webApp.getContext()});
+        }
+        this.setWebAppButtonsEnabled();
+        return;
+    }
+
+    private void setWebAppButtonsEnabled() {
+        boolean selected = this.fWebAppsTable.getSelectionIndex() >= 0;
+        this.fEditWebAppButton.setEnabled(selected);
+        this.fRemoveWebAppButton.setEnabled(selected);
+        this.fSharedLibsButton.setEnabled(!this.fWebApps.isEmpty());
+        return;
+    }
+
+    private void handleAddWebApp() {
+        IJavaProject project = this.chooseJavaProject("");
+        if (project == null) {
+            return;
+        }
+        WebAppEntry webApp = this.chooseWebApp(project.getElementName(), "", "/" + project.getElementName());
+        if (webApp != null) {
+            this.fWebApps.add(webApp);
+            this.updateWebAppsTable();
+            this.updateLaunchConfigurationDialog();
+        }
+        return;
+    }
+
+    private void handleEditWebApp() {
+        int index = this.fWebAppsTable.getSelectionIndex();
+        if (index < 0) {
+            return;
+        }
+        WebAppEntry current = this.fWebApps.get(index);
+        WebAppEntry webApp = this.chooseWebApp(current.getProjectName(), current.getWebAppDir(), current.getContext());
+        if (webApp != null) {
+            this.fWebApps.set(index, webApp);
+            this.updateWebAppsTable();
+            this.fWebAppsTable.setSelection(index);
+            this.setWebAppButtonsEnabled();
+            this.updateLaunchConfigurationDialog();
+        }
+        return;
+    }
+
+    private void handleRemoveWebApp() {
+        int index = this.fWebAppsTable.getSelectionIndex();
+        if (index < 0) {
+            return;
+        }
+        this.fWebApps.remove(index);
+        this.updateWebAppsTable();
+        this.updateLaunchConfigurationDialog();
+        return;
+    }
+
+    /**
+     * Asks for the directory and the context of a web application of a project.
+     * 
+     * @return the web application, or null if cancelled
+     */
+    private WebAppEntry chooseWebApp(String projectName, String webAppDir, String context) {
+        String dir = this.chooseWebappDir(projectName);
+        if (dir == null) {
+            if (webAppDir.length() == 0) {
+                return null;
+            }
+            dir = webAppDir;
+        }
+        InputDialog dialog = new InputDialog(this.getShell(), "Context", MessageFormat.format(
+                "Context path of the web application in {0}/{1}:", projectName, dir), context, new IInputValidator() {
+
+            public String isValid(String newText) {
+                if (!newText.startsWith("/")) {
+                    return "The context path must start with /";
+                }
+                if (newText.indexOf(WebAppEntry.SEPARATOR) >= 0) {
+                    return "The context path must not contain " + WebAppEntry.SEPARATOR;
+                }
+                return null;
+            }
+        });
+        if (dialog.open() != Window.OK) {
+            return null;
+        }
+        return new WebAppEntry(projectName, dir, dialog.getValue().trim());
+    }
+
+    /**
+     * Checks the additional web applications: their projects and directories must exist, and every context path must
+     * be used once.
+     * 
+     * @param mainContext the context of the main web application
+     */
+    private boolean isInvalidWebApps(String mainContext) {
+        Set<String> contexts = new HashSet<String>();
+        contexts.add(mainContext);
+        for (WebAppEntry webApp : this.fWebApps) {
+            IProject project = this.getWorkspaceRoot().getProject(webApp.getProjectName());
+            if (!project.exists() || !project.isOpen()) {
+                this.setErrorMessage(MessageFormat.format("Project {0} does not exist or is closed", webApp.getProjectName()));
+                return true;
+            }
+            if (!project.getFile(new Path(webApp.getWebAppDir() + "/WEB-INF/web.xml")).exists()) {
+                this.setErrorMessage(MessageFormat.format(
+                        "Directory {0} of project {1} does not contain WEB-INF/web.xml; it is not a valid web application directory",
+                        webApp.getWebAppDir(), webApp.getProjectName()));
+                return true;
+            }
+            if (!contexts.add(webApp.getContext())) {
+                this.setErrorMessage(MessageFormat.format("Context {0} is used by more than one web application",
+                        webApp.getContext()));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the widgets for the DefaultServlet, which serves the static content of the web application.
+     * 
+     * @param parent the parent composite
+     */
+    private void createStaticContentEditor(Composite parent) {
+        Font font = parent.getFont();
+        Group group = new Group(parent, SWT.NONE);
+        group.setText("Static Content");
+        GridData gd = this.createHFillGridData();
+        group.setLayoutData(gd);
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 4;
+        group.setLayout(layout);
+        group.setFont(font);
+
+        this.fFileMappedBufferButton = this.createCheckButton(group, "Memory-mapped file buffers (locks static files on Windows)");
+        this.fFileMappedBufferButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 4;
+        this.fFileMappedBufferButton.setLayoutData(gd);
+
+        this.fMaxCacheSizeText = this.createLabeledText(group, "Max cache size");
+        this.fMaxCachedFileSizeText = this.createLabeledText(group, "Max cached file size");
+        this.fMaxCachedFilesText = this.createLabeledText(group, "Max cached files");
+
+        return;
+    }
+
+    /**
+     * Creates the widgets for compressing responses with Jetty's GzipFilter.
+     * 
+     * @param parent the parent composite
+     */
+    private void createCompressionEditor(Composite parent) {
+        Font font = parent.getFont();
+        Group group = new Group(parent, SWT.NONE);
+        group.setText("Compression");
+        GridData gd = this.createHFillGridData();
+        group.setLayoutData(gd);
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 4;
+        group.setLayout(layout);
+        group.setFont(font);
+
+        this.fGzipButton = this.createCheckButton(group, "Gzip responses");
+        this.fGzipButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.setGzipEnabled(RunJettyRunTab.this.fGzipButton.getSelection());
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 4;
+        this.fGzipButton.setLayoutData(gd);
+
+        this.fGzipMimeTypesText = this.createLabeledText(group, "MIME types");
+        gd = this.createHFillGridData();
+        gd.horizontalSpan = 3;
+        this.fGzipMimeTypesText.setLayoutData(gd);
+
+        this.fGzipMinSizeText = this.createLabeledText(group, "Min size");
+        this.fGzipBufferSizeText = this.createLabeledText(group, "Buffer size");
+
+        this.setGzipEnabled(false);
+
+        return;
+    }
+
+    /**
+     * Creates the widgets for sizing Jetty's thread pool. Empty fields leave Jetty's defaults in place.
+     * 
+     * Min threads: Text... Max threads: Text... Idle timeout (ms): Text... Queue limit: Text...
+     * 
+     * @param parent the parent composite
+     */
+    private void createThreadPoolEditor(Composite parent) {
+        Font font = parent.getFont();
+        Group group = new Group(parent, SWT.NONE);
+        group.setText("Thread Pool");
+        GridData gd = this.createHFillGridData();
+        group.setLayoutData(gd);
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 4;
+        group.setLayout(layout);
+        group.setFont(font);
+
+        this.fMinThreadsText = this.createLabeledText(group, "Min threads");
+        this.fMaxThreadsText = this.createLabeledText(group, "Max threads");
+        this.fThreadIdleTimeText = this.createLabeledText(group, "Idle timeout (ms)");
+        this.fQueueLimitText = this.createLabeledText(group, "Queue limit");
+
+        return;
+    }
+
+    /**
+     * Creates the widgets for tuning the HTTP and HTTPS connectors. Empty fields leave Jetty's defaults in place.
+     * 
+     * @param parent the parent composite
+     */
+    private void createConnectorTuningEditor(Composite parent) {
+        Font font = parent.getFont();
+        Group group = new Group(parent, SWT.NONE);
+        group.setText("Connector Tuning");
+        GridData gd = this.createHFillGridData();
+        group.setLayoutData(gd);
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 4;
+        group.setLayout(layout);
+        group.setFont(font);
+
+        this.fAcceptorsText = this.createLabeledText(group, "Acceptors");
+        this.fAcceptQueueSizeText = this.createLabeledText(group, "Accept queue size");
+        this.fRequestBufferSizeText = this.createLabeledText(group, "Request buffer");
+        this.fResponseBufferSizeText = this.createLabeledText(group, "Response buffer");
+        this.fHeaderBufferSizeText = this.createLabeledText(group, "Header buffer");
+        this.fMaxIdleTimeText = this.createLabeledText(group, "Max idle time (ms)");
+        this.fLowResourcesConnectionsText = this.createLabeledText(group, "Low resources conns");
+        this.fLowResourceMaxIdleTimeText = this.createLabeledText(group, "Low resources idle (ms)");
+
+        this.fSslAcceptorsText = this.createLabeledText(group, "SSL acceptors");
+        this.fSslMaxIdleTimeText = this.createLabeledText(group, "SSL max idle time (ms)");
+        this.fSslRequestBufferSizeText = this.createLabeledText(group, "SSL request buffer");
+        this.fSslResponseBufferSizeText = this.createLabeledText(group, "SSL response buffer");
+
+        this.fConnectorStatsButton = this.createCheckButton(group, "Connection statistics");
+        this.fConnectorStatsButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        this.fConnectorStatsButton.setLayoutData(gd);
+        this.fStatsPortText = this.createLabeledText(group, "Statistics port");
+
+        return;
+    }
+
+    /**
+     * Creates the widgets for choosing the server engine. Jetty 12 runs with the jars of a directory, since they are
+     * not part of the plug-in, and adds HTTP/2 and virtual threads.
+     * 
+     * @param parent the parent composite
+     */
+    private void createEngineEditor(Composite parent) {
+        Font font = parent.getFont();
+        Group group = new Group(parent, SWT.NONE);
+        group.setText("Server Engine");
+        GridData gd = this.createHFillGridData();
+        group.setLayoutData(gd);
+        GridLayout layout = new GridLayout();
+        layout.numColumns = 3;
+        group.setLayout(layout);
+        group.setFont(font);
+
+        // Row 1: "Run on Jetty 12" Check box (3 columns)
+        this.fJetty12Button = this.createCheckButton(group, "Run on Jetty 12 instead of the bundled Jetty 6");
+        this.fJetty12Button.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.setEngineEnabled(RunJettyRunTab.this.fJetty12Button.getSelection());
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fJetty12Button.setLayoutData(gd);
+
+        // Row 2: "Jetty 12 jars", Text field, "Browse..." Button
+        this.fEngineHomeText = this.createLabeledText(group, "Jetty 12 jars");
+        this.fEngineHomeButton = this.createPushButton(group, "Bro&wse...", null);
+        this.fEngineHomeButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.handleBrowseEngineHome();
+            }
+        });
+
+        // Row 3: "HTTP/2" Check box (3 columns)
+        this.fHttp2Button = this.createCheckButton(group, "Serve HTTP/2 without TLS (h2c) on the HTTP port");
+        this.fHttp2Button.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fHttp2Button.setLayoutData(gd);
+
+        // Row 4: "Virtual threads" Check box (3 columns)
+        this.fVirtualThreadsButton = this.createCheckButton(group, "Handle requests on virtual threads (Java 21 or later)");
+        this.fVirtualThreadsButton.addSelectionListener(new ButtonListener() {
+
+            public void widgetSelected(SelectionEvent e) {
+                RunJettyRunTab.this.updateLaunchConfigurationDialog();
+            }
+        });
+        gd = new GridData();
+        gd.horizontalSpan = 3;
+        this.fVirtualThreadsButton.setLayoutData(gd);
+
+        this.setEngineEnabled(false);
+
+        return;
+    }
+
     private IWorkspaceRoot getWorkspaceRoot() {
         return ResourcesPlugin.getWorkspace().getRoot();
     }
@@ -619,6 +1675,20 @@ public class RunJettyRunTab extends JavaLaunchTab {
         return true;
     }
 
+    private boolean isInvalidNumber(String s, String name) {
+        if (s.length() == 0) {
+            return false;
+        }
+        try {
+            if (Integer.parseInt(s) >= 0) {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+        }
+        this.setErrorMessage(MessageFormat.format("{0} is not a valid number: {1}", name, s));
+        return true;
+    }
+
     private void setWidthForSampleText(Text control, String sampleText) {
         GC gc = new GC(control);
         try {
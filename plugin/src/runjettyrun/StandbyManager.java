@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchesListener2;
+
+/**
+ * Keeps a {@link StandbyVM} ready for the next launch of the configurations that ask for one. The JVM is started when
+ * a launch of the configuration terminates, with the command line of that launch, and taken by the next launch if its
+ * command line is still the same.
+ */
+public class StandbyManager implements ILaunchesListener2 {
+
+    /** The parked JVM per launch configuration name. */
+    private final Map<String, StandbyVM> standbys = new HashMap<String, StandbyVM>();
+
+    /** The JVMs to start once the launches terminate. */
+    private final Map<ILaunch, Command> pending = new HashMap<ILaunch, Command>();
+
+    private boolean stopped;
+
+    public StandbyManager() {
+    }
+
+    public void start() {
+        DebugPlugin.getDefault().getLaunchManager().addLaunchListener(this);
+        return;
+    }
+
+    /**
+     * Stops listening to the launches, and stops the parked JVMs.
+     */
+    public synchronized void stop() {
+        DebugPlugin.getDefault().getLaunchManager().removeLaunchListener(this);
+        this.stopped = true;
+        this.pending.clear();
+        for (StandbyVM standby : this.standbys.values()) {
+            standby.dispose();
+        }
+        this.standbys.clear();
+        return;
+    }
+
+    /**
+     * Takes the parked JVM of a launch configuration, if it is ready and can run the given command line. Any other
+     * is stopped: one still loading the classes would keep the processors busy during the cold start of the launch.
+     *
+     * @return the JVM, or null
+     */
+    public synchronized StandbyVM take(String configurationName, String[] cmdLine, File workingDir, String[] envp) {
+        StandbyVM standby = this.standbys.remove(configurationName);
+        if (standby == null) {
+            return null;
+        }
+        if (!standby.isReady() || !standby.matches(cmdLine, workingDir, envp)) {
+            standby.dispose();
+            return null;
+        }
+        return standby;
+    }
+
+    /**
+     * Stops the parked JVM of a launch configuration, if any.
+     */
+    public synchronized void discard(String configurationName) {
+        StandbyVM standby = this.standbys.remove(configurationName);
+        if (standby != null) {
+            standby.dispose();
+        }
+        return;
+    }
+
+    /**
+     * Has a JVM started for the next launch of the configuration when the given launch terminates.
+     */
+    public synchronized void prepare(ILaunch launch, String configurationName, String[] cmdLine, File workingDir,
+            String[] envp) {
+        this.pending.put(launch, new Command(configurationName, cmdLine, workingDir, envp));
+        return;
+    }
+
+    public synchronized void launchesTerminated(ILaunch[] launches) {
+        if (this.stopped) {
+            return;
+        }
+        for (int i = 0; i < launches.length; i++) {
+            Command command = this.pending.remove(launches[i]);
+            if (command == null) {
+                continue;
+            }
+            this.discard(command.configurationName);
+            try {
+                this.standbys.put(command.configurationName, StandbyVM.start(command.cmdLine, command.workingDir,
+                        command.envp));
+            } catch (CoreException e) {
+                Plugin.logError(e);
+            }
+        }
+        return;
+    }
+
+    public synchronized void launchesRemoved(ILaunch[] launches) {
+        for (int i = 0; i < launches.length; i++) {
+            this.pending.remove(launches[i]);
+        }
+        return;
+    }
+
+    public void launchesAdded(ILaunch[] launches) {
+    }
+
+    public void launchesChanged(ILaunch[] launches) {
+    }
+
+    private static class Command {
+
+        final String configurationName;
+
+        final String[] cmdLine;
+
+        final File workingDir;
+
+        final String[] envp;
+
+        Command(String configurationName, String[] cmdLine, File workingDir, String[] envp) {
+            this.configurationName = configurationName;
+            this.cmdLine = cmdLine;
+            this.workingDir = workingDir;
+            this.envp = envp;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.core.DebugPlugin;
+
+/**
+ * A bootstrap JVM started ahead of a launch (see the bootstrap's Standby class). It loads the Jetty classes, connects
+ * back to the server socket opened here, and waits for the -Drjr... settings of the launch. It can only take a launch
+ * whose command line (JVM, VM arguments, class path), working directory and environment are the ones it was started
+ * with.
+ * <p>
+ * The connection is accepted in the background as soon as the JVM has loaded the classes, which makes it ready. A
+ * launch only takes a ready JVM: waiting for one still loading the classes can take longer than a cold start.
+ */
+public class StandbyVM {
+
+    /** How long the JVM may take to identify itself once connected. */
+    private static final int TOKEN_TIMEOUT = 5000;
+
+    private final String[] cmdLine;
+
+    private final File workingDir;
+
+    private final String[] envp;
+
+    private final ServerSocket serverSocket;
+
+    private final String token;
+
+    private final Process process;
+
+    /** The connection of the JVM once it has loaded the classes and identified itself, null until then. */
+    private volatile Socket socket;
+
+    private StandbyVM(String[] cmdLine, File workingDir, String[] envp) throws CoreException {
+        this.cmdLine = cmdLine;
+        this.workingDir = workingDir;
+        this.envp = envp;
+        try {
+            this.serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        } catch (IOException e) {
+            throw new CoreException(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, IStatus.ERROR,
+                    "Can't open the port of the standby JVM", e));
+        }
+        this.token = Long.toHexString(new SecureRandom().nextLong());
+
+        // the standby settings go just before the class path, after the VM arguments of the launch
+        List<String> args = new ArrayList<String>(Arrays.asList(cmdLine));
+        int classpath = args.indexOf("-classpath");
+        args.add(classpath, "-Drjrstandby=" + this.serverSocket.getLocalPort());
+        args.add(classpath + 1, "-Drjrstandbytoken=" + this.token);
+        try {
+            this.process = DebugPlugin.exec(args.toArray(new String[args.size()]), workingDir, envp);
+        } catch (CoreException e) {
+            this.close();
+            throw e;
+        }
+
+        Thread acceptor = new Thread("Standby JVM acceptor") {
+
+            @Override
+            public void run() {
+                StandbyVM.this.accept();
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Starts a JVM for the next launch of the given command line.
+     *
+     * @param cmdLine the command line of the launch, with "-classpath" before the class path
+     */
+    public static StandbyVM start(String[] cmdLine, File workingDir, String[] envp) throws CoreException {
+        return new StandbyVM(cmdLine, workingDir, envp);
+    }
+
+    /**
+     * @return whether the JVM can take a launch with the given command line, working directory and environment
+     */
+    public boolean matches(String[] cmdLine, File workingDir, String[] envp) {
+        return Arrays.equals(this.cmdLine, cmdLine)
+                && (this.workingDir == null ? workingDir == null : this.workingDir.equals(workingDir))
+                && Arrays.equals(this.envp, envp);
+    }
+
+    /**
+     * @return whether the JVM has loaded the classes and is waiting for a launch
+     */
+    public boolean isReady() {
+        return this.socket != null && this.isAlive();
+    }
+
+    public boolean isAlive() {
+        try {
+            this.process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the command line of the launches the JVM can take
+     */
+    public String[] getCmdLine() {
+        return this.cmdLine.clone();
+    }
+
+    /**
+     * Hands the settings of a launch to a ready JVM, which starts Jetty with them.
+     *
+     * @param settings the system properties (-Drjr...) of the launch
+     * @return the process of the JVM, now running the launch
+     * @throws IOException if the JVM is not ready, or the settings can't be sent
+     */
+    public Process handOver(Properties settings) throws IOException {
+        Socket socket = this.socket;
+        if (socket == null) {
+            throw new IOException("The standby JVM is not ready");
+        }
+        try {
+            OutputStream out = socket.getOutputStream();
+            settings.store(out, null);
+            out.flush();
+        } finally {
+            socket.close();
+            this.close();
+        }
+        return this.process;
+    }
+
+    /**
+     * Stops the JVM. Not for one that was handed a launch, which belongs to the launch from then on.
+     */
+    public void dispose() {
+        this.close();
+        Socket socket = this.socket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Plugin.logError(e);
+            }
+        }
+        this.process.destroy();
+        return;
+    }
+
+    private void close() {
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            Plugin.logError(e);
+        }
+        return;
+    }
+
+    /**
+     * Waits for the JVM to connect back, which it does once it has loaded the classes. Returns when the server socket
+     * is closed, by a hand over or by {@link #dispose()}.
+     */
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                // closed
+                return;
+            }
+            try {
+                socket.setSoTimeout(TOKEN_TIMEOUT);
+                if (this.token.equals(this.readLine(socket.getInputStream()))) {
+                    socket.setSoTimeout(0);
+                    this.socket = socket;
+                    return;
+                }
+            } catch (IOException e) {
+                // not the JVM, or it went away
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Plugin.logError(e);
+            }
+        }
+        return;
+    }
+
+    /**
+     * Reads up to a new line, byte by byte (the token is ASCII).
+     */
+    private String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int c = in.read(); c != -1 && c != '\n'; c = in.read()) {
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+}
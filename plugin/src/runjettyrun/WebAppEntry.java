@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package runjettyrun;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An additional web application of a launch configuration: a project, its web application directory and the context
+ * path to deploy it on. Stored in {@link Plugin#ATTR_WEBAPPS} as project|directory|context.
+ */
+public class WebAppEntry {
+
+    /** Separates the fields in the attribute; not allowed in any of them. */
+    public static final char SEPARATOR = '|';
+
+    private final String projectName;
+
+    private final String webAppDir;
+
+    private final String context;
+
+    public WebAppEntry(String projectName, String webAppDir, String context) {
+        this.projectName = projectName;
+        this.webAppDir = webAppDir;
+        this.context = context;
+    }
+
+    public String getProjectName() {
+        return this.projectName;
+    }
+
+    /**
+     * @return the web application directory, relative to the project
+     */
+    public String getWebAppDir() {
+        return this.webAppDir;
+    }
+
+    public String getContext() {
+        return this.context;
+    }
+
+    public String toAttribute() {
+        return this.projectName + SEPARATOR + this.webAppDir + SEPARATOR + this.context;
+    }
+
+    /**
+     * @param value an entry of {@link Plugin#ATTR_WEBAPPS}
+     * @return the web application, or null if the value is malformed
+     */
+    public static WebAppEntry fromAttribute(String value) {
+        int first = value.indexOf(SEPARATOR);
+        int second = value.indexOf(SEPARATOR, first + 1);
+        if (first < 0 || second < 0) {
+            return null;
+        }
+        return new WebAppEntry(value.substring(0, first), value.substring(first + 1, second), value.substring(second + 1));
+    }
+
+    /**
+     * @param values the value of {@link Plugin#ATTR_WEBAPPS}
+     * @return the web applications, without the malformed values
+     */
+    public static List<WebAppEntry> fromAttributes(List<?> values) {
+        List<WebAppEntry> entries = new ArrayList<WebAppEntry>();
+        for (Object value : values) {
+            WebAppEntry entry = fromAttribute((String) value);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    public static List<String> toAttributes(List<WebAppEntry> entries) {
+        List<String> values = new ArrayList<String>();
+        for (WebAppEntry entry : entries) {
+            values.add(entry.toAttribute());
+        }
+        return values;
+    }
+}